@@ -0,0 +1,62 @@
+/*
+ * Benchmarks - Runs the receive path benchmarks
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+/**
+ * Runs all benchmarks, or the groups named on the command line: utils, ndef,
+ * framing. Payload sizes go from 32 bytes to 64 KB.
+ */
+public class Benchmarks {
+
+    static final int[] SIZES = {32, 256, 1024, 4096, 16384, 65536};
+
+    static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+
+    private static boolean selected(String[] args, String group) {
+        if (args.length == 0) {
+            return true;
+        }
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Harness harness = new Harness();
+        if (selected(args, "utils")) {
+            UtilsBenchmark.run(harness);
+        }
+        if (selected(args, "ndef")) {
+            NdefBenchmark.run(harness);
+        }
+        if (selected(args, "framing")) {
+            FramingBenchmark.run(harness);
+        }
+        System.out.println("(sink " + harness.getSink() + ")");
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * BlockCheck - Compares the NFCIPUtils block code with the previous version
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import ds.nfcip.BlockAssembler;
+import ds.nfcip.BlockCursor;
+import ds.nfcip.NFCIPUtils;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * Checks {@link NFCIPUtils#dataToBlockVector(byte[], int, boolean, boolean)},
+ * {@link NFCIPUtils#blockVectorToData(Vector, boolean)}, {@link BlockCursor},
+ * {@link BlockAssembler} and the ByteBuffer padding and flag methods against
+ * the byte[] code NFCIPUtils had before them, kept below as reference. Every
+ * data size from 0 to {@link #MAX_SIZE}, the block sizes of
+ * {@link #BLOCK_SIZES} and all flag combinations are compared, including
+ * which ones throw. Prints the first differences and exits with status 1
+ * if there was one.
+ */
+public class BlockCheck {
+
+    static final int MAX_SIZE = 299;
+    static final int[] BLOCK_SIZES = {0, 1, 2, 3, 7, 16, 64, 128, 255, 256, 300};
+
+    private static int cases = 0;
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("[Error] " + message);
+        }
+    }
+
+    private static String describe(Vector<?> blocks) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < blocks.size(); i++) {
+            text.append(NFCIPUtils.byteArrayToString((byte[]) blocks.elementAt(i))).append("| ");
+        }
+        return text.toString();
+    }
+
+    private static boolean sameBlocks(Vector<?> a, Vector<?> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!Arrays.equals((byte[]) a.elementAt(i), (byte[]) b.elementAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkBlocks(byte[] data, int blockSize, boolean chaining, boolean numbers) {
+        cases++;
+        String name = "size " + data.length + " block " + blockSize
+                + " chaining " + chaining + " numbers " + numbers;
+        Vector<?> expected = null;
+        Vector<?> actual = null;
+        String expectedError = null;
+        String actualError = null;
+        try {
+            expected = referenceDataToBlockVector(data, blockSize, chaining, numbers);
+        } catch (IllegalArgumentException ex) {
+            expectedError = ex.getMessage();
+        }
+        try {
+            actual = NFCIPUtils.dataToBlockVector(data, blockSize, chaining, numbers);
+        } catch (IllegalArgumentException ex) {
+            actualError = ex.getMessage();
+        }
+        if (expectedError != null || actualError != null) {
+            if (expectedError == null || !expectedError.equals(actualError)) {
+                fail(name + ": expected error " + expectedError + ", got " + actualError);
+            }
+            return;
+        }
+        if (!sameBlocks(expected, actual)) {
+            fail(name + ": dataToBlockVector " + describe(actual) + "expected " + describe(expected));
+            return;
+        }
+
+        // the cursor on its own, at an offset in a larger buffer
+        if (data.length > 0) {
+            byte[] padded = new byte[data.length + 5];
+            System.arraycopy(data, 0, padded, 3, data.length);
+            ByteBuffer source = ByteBuffer.wrap(padded, 3, data.length);
+            BlockCursor cursor = new BlockCursor(source, blockSize, chaining, numbers);
+            byte[] frame = new byte[blockSize];
+            int index = 0;
+            while (cursor.next()) {
+                byte[] block = Arrays.copyOf(frame, cursor.writeBlock(frame, 0));
+                if (index >= expected.size() || !Arrays.equals(block, (byte[]) expected.elementAt(index))) {
+                    fail(name + ": BlockCursor block " + index);
+                    break;
+                }
+                ByteBuffer out = ByteBuffer.allocate(blockSize);
+                cursor.writeBlock(out);
+                if (!Arrays.equals(Arrays.copyOf(out.array(), out.position()), block)
+                        || cursor.isLast() != (index == expected.size() - 1)) {
+                    fail(name + ": BlockCursor ByteBuffer block " + index);
+                    break;
+                }
+                index++;
+            }
+            if (index != expected.size()) {
+                fail(name + ": BlockCursor gave " + index + " blocks, expected " + expected.size());
+            }
+            if (source.position() != 3 || source.limit() != 3 + data.length) {
+                fail(name + ": BlockCursor moved the source buffer");
+            }
+        }
+
+        byte[] data2 = referenceBlockVectorToData(expected, chaining);
+        byte[] actual2 = NFCIPUtils.blockVectorToData(expected, chaining);
+        if (!Arrays.equals(data2, actual2)) {
+            fail(name + ": blockVectorToData");
+        }
+
+        BlockAssembler assembler = new BlockAssembler((data.length > 16) ? data.length / 3 : 0, chaining);
+        BlockAssembler buffers = new BlockAssembler(0, chaining);
+        for (int i = 0; i < expected.size(); i++) {
+            byte[] block = (byte[]) expected.elementAt(i);
+            boolean more = assembler.append(block, 0, block.length);
+            buffers.append(ByteBuffer.wrap(block));
+            if (more != (chaining && i < expected.size() - 1)) {
+                fail(name + ": BlockAssembler chaining of block " + i);
+            }
+        }
+        if (!Arrays.equals(data2, assembler.toByteArray()) || !Arrays.equals(data2, buffers.toByteArray())
+                || !assembler.isComplete()) {
+            fail(name + ": BlockAssembler");
+        }
+    }
+
+    private static void checkPadding(byte[] data) {
+        cases++;
+        byte[] expected = referenceAddPadding(data);
+        ByteBuffer out = ByteBuffer.allocate(data.length + 24);
+        int written = NFCIPUtils.addPadding(ByteBuffer.wrap(data), out);
+        if (written != expected.length || !Arrays.equals(Arrays.copyOf(out.array(), written), expected)) {
+            fail("addPadding size " + data.length);
+            return;
+        }
+        byte[] unpadded = referenceRemovePadding(expected);
+        ByteBuffer view = NFCIPUtils.removePadding(ByteBuffer.wrap(expected));
+        byte[] actual = new byte[view.remaining()];
+        view.get(actual);
+        if (!Arrays.equals(unpadded, actual) || !Arrays.equals(unpadded, data)) {
+            fail("removePadding size " + data.length);
+        }
+    }
+
+    private static void checkFlags() {
+        for (int b = 0; b < 256; b++) {
+            cases++;
+            byte[] block = {(byte) b, 0x55};
+            ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0x00, (byte) b, 0x55});
+            buffer.position(1);
+            if (NFCIPUtils.isChained(buffer) != NFCIPUtils.isChained(block)
+                    || NFCIPUtils.isEndBlock(buffer) != NFCIPUtils.isEndBlock(block)
+                    || buffer.position() != 1) {
+                fail("flags of " + NFCIPUtils.byteToString(b));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            byte[] data = Benchmarks.data(size);
+            for (int blockSize : BLOCK_SIZES) {
+                checkBlocks(data, blockSize, false, false);
+                checkBlocks(data, blockSize, false, true);
+                checkBlocks(data, blockSize, true, false);
+                checkBlocks(data, blockSize, true, true);
+            }
+            checkPadding(data);
+        }
+        checkFlags();
+
+        System.out.println(cases + " cases, " + failures + " differences");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // NFCIPUtils before BlockCursor, F. Kooman
+
+    private static Vector<byte[]> referenceDataToBlockVector(byte[] data, int blockSize,
+            boolean chainingIndicator, boolean addBlockNumbers) {
+        Vector<byte[]> v = new Vector<byte[]>();
+        int dataPointer = 0;
+        int dataLength = (data == null) ? 0 : data.length;
+        if (dataLength == 0 && chainingIndicator) {
+            v.addElement(new byte[]{0x00});
+            return v;
+        }
+        if (dataLength == 0) {
+            v.addElement(new byte[0]);
+            return v;
+        }
+        if (chainingIndicator & blockSize < 2) {
+            throw new IllegalArgumentException(
+                    "block size should be >= 2 when using the chaining indicator");
+        } else if (blockSize < 1) {
+            throw new IllegalArgumentException("block size should be >= 1");
+        }
+
+        while (dataLength > 0) {
+            int blkSize, blkDataSize;
+            if (chainingIndicator) {
+                blkSize = (dataLength >= blockSize) ? blockSize : dataLength + 1;
+                blkDataSize = blkSize - 1;
+            } else {
+                blkSize = (dataLength >= blockSize) ? blockSize : dataLength;
+                blkDataSize = blkSize;
+            }
+            byte[] blk = new byte[blkSize];
+            System.arraycopy(data, dataPointer, blk, blkSize - blkDataSize, blkDataSize);
+            dataPointer += blkDataSize;
+            dataLength -= blkDataSize;
+            if (chainingIndicator) {
+                blk[0] = 0x01;
+            }
+            v.addElement(blk);
+        }
+        if (chainingIndicator) {
+            v.lastElement()[0] = 0x00;
+            if (addBlockNumbers) {
+                for (int i = 0; i < v.size(); i++) {
+                    v.elementAt(i)[0] = (byte) (v.elementAt(i)[0] | ((i % 2) << 1));
+                }
+            }
+        }
+        return v;
+    }
+
+    private static byte[] referenceBlockVectorToData(Vector<?> bv, boolean chainingIndicator) {
+        byte[] data = new byte[0];
+        for (int i = 0; i < bv.size(); i++) {
+            byte[] block = (byte[]) bv.elementAt(i);
+            if (chainingIndicator) {
+                block = NFCIPUtils.subByteArray(block, 1, block.length - 1);
+            }
+            data = NFCIPUtils.appendToByteArray(data, block);
+        }
+        return data;
+    }
+
+    private static byte[] referenceAddPadding(byte[] data) {
+        int dataLength = (data == null) ? 0 : data.length;
+        if (dataLength >= 23) {
+            return NFCIPUtils.appendToByteArray(new byte[]{0x00}, data);
+        } else if (dataLength == 22) {
+            return NFCIPUtils.appendToByteArray(new byte[]{0x02}, data);
+        } else {
+            byte[] padding = new byte[23 - dataLength];
+            padding[0] = 0x01;
+            padding[23 - dataLength - 1] = 0x01;
+            return NFCIPUtils.appendToByteArray(padding, data);
+        }
+    }
+
+    private static byte[] referenceRemovePadding(byte[] data) {
+        int dataLength = (data == null) ? 0 : data.length;
+        if (data[0] == 0x00 || data[0] == 0x02) {
+            return NFCIPUtils.subByteArray(data, 1, dataLength - 1);
+        } else {
+            int i = 1;
+            while (data[i] == 0x00) {
+                i++;
+            }
+            return NFCIPUtils.subByteArray(data, i + 1, dataLength - i - 1);
+        }
+    }
+}
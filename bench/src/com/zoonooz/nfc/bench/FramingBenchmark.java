@@ -0,0 +1,83 @@
+/*
+ * FramingBenchmark - Benchmarks of the PN53x command framing
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import com.zoonooz.nfc.ApduFrame;
+import com.zoonooz.nfc.sim.ApduResponder;
+import com.zoonooz.nfc.sim.SimulatedTerminal;
+import ds.nfcip.NFCIPUtils;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Framing and sending one InDataExchange the way Connection.sendCommand does,
+ * next to the array concatenation it used before, over a simulated channel
+ * that answers with a SYMM PDU
+ */
+public class FramingBenchmark {
+
+    private static final byte IN_DATA_EXCHANGE = (byte) 0x40;
+
+    public static void run(Harness harness) throws Exception {
+        final CardChannel ch = new SimulatedTerminal("bench", new ApduResponder() {
+
+            @Override
+            public boolean isPresent() {
+                return true;
+            }
+
+            @Override
+            public int respond(byte[] command, int length, byte[] response) {
+                byte[] symm = {(byte) 0xd5, 0x41, 0x00, 0x00, 0x00, (byte) 0x90, 0x00};
+                System.arraycopy(symm, 0, response, 0, symm.length);
+                return symm.length;
+            }
+        }).connect("*").getBasicChannel();
+
+        for (int size : new int[]{3, 64, 250}) {
+            final byte[] payload = Benchmarks.data(size);
+            final ApduFrame frame = new ApduFrame();
+
+            harness.run("ApduFrame build+transmit " + size, new Harness.Body() {
+
+                @Override
+                public long run() throws Exception {
+                    frame.build(IN_DATA_EXCHANGE, payload);
+                    return frame.transmit(ch);
+                }
+            });
+
+            harness.run("concatenated APDU transmit " + size, new Harness.Body() {
+
+                @Override
+                public long run() throws Exception {
+                    byte[] instruction = {(byte) 0xd4, IN_DATA_EXCHANGE};
+                    byte[] header = {(byte) 0xff, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                        (byte) (instruction.length + payload.length)};
+                    byte[] cmd = NFCIPUtils.appendToByteArray(header, instruction, 0,
+                            instruction.length);
+                    cmd = NFCIPUtils.appendToByteArray(cmd, payload);
+                    ResponseAPDU response = ch.transmit(new CommandAPDU(cmd));
+                    return response.getBytes().length;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Harness - Small micro benchmark runner
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Runs a benchmark body in warmup and measurement rounds and prints the time
+ * and heap allocation per operation. Results of the body go to a sink so the
+ * JIT can not drop the work.
+ */
+public class Harness {
+
+    /**
+     * Code to measure
+     */
+    public interface Body {
+
+        /**
+         * Run the operation once
+         *
+         * @return some result depending on the work done
+         * @throws Exception if the operation failed
+         */
+        long run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupRounds;
+    private final int rounds;
+    private final long roundNanos;
+    private long sink;
+
+    public Harness() {
+        this(5, 5, 200000000L);
+    }
+
+    /**
+     * @param warmupRounds rounds run before measuring
+     * @param rounds rounds measured
+     * @param roundNanos minimum duration of a round
+     */
+    public Harness(int warmupRounds, int rounds, long roundNanos) {
+        this.warmupRounds = warmupRounds;
+        this.rounds = rounds;
+        this.roundNanos = roundNanos;
+    }
+
+    /**
+     * Measure one benchmark and print a line of results
+     *
+     * @param name benchmark name
+     * @param body the code to measure
+     * @return average ns per operation of the best round
+     */
+    public double run(String name, Body body) throws Exception {
+        for (int i = 0; i < warmupRounds; i++) {
+            round(body);
+        }
+        double best = Double.MAX_VALUE;
+        double bytes = 0;
+        for (int i = 0; i < rounds; i++) {
+            long allocated = allocated();
+            long[] result = round(body);
+            double nsPerOp = (double) result[1] / result[0];
+            if (nsPerOp < best) {
+                best = nsPerOp;
+                bytes = (double) (allocated() - allocated) / result[0];
+            }
+        }
+        System.out.println(String.format("%-48s %12.1f ns/op %10.1f B/op", name, best, bytes));
+        return best;
+    }
+
+    private long[] round(Body body) throws Exception {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 64; i++) {
+                sink += body.run();
+            }
+            ops += 64;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < roundNanos);
+        return new long[]{ops, elapsed};
+    }
+
+    private static long allocated() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @return the accumulated results, print it to keep them alive
+     */
+    public long getSink() {
+        return sink;
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * LoadSuite - Throughput regression suite of the receive path
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import com.zoonooz.nfc.AdaptivePollScheduler;
+import com.zoonooz.nfc.Connection;
+import com.zoonooz.nfc.LlcpParameters;
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefMessageListener;
+import com.zoonooz.nfc.sim.AndroidSnepPeer;
+import com.zoonooz.nfc.sim.SimulatedTerminal;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Pushes thousands of generated beams through {@link Connection} and an
+ * {@link AndroidSnepPeer}, from the SNEP fragment loop to the complete
+ * {@link NdefMessage}, and prints messages per second, p50 and p99 transfer
+ * latency and the bytes allocated by the reader thread per message. Every
+ * valid message must arrive unchanged and every broken one must be refused
+ * with a SNEP error, and the phone must never be activated again before it
+ * was released.
+ * <p>
+ * After a full unmeasured round of every scenario, each one runs
+ * {@link #ROUNDS} times and the median of each number counts. The results
+ * are compared with a baseline file, written on the first run. The program
+ * exits with status 1 when a scenario is slower, has a higher latency or
+ * allocates more than the baseline allows by the tolerance, or when a
+ * message was lost, wrongly accepted or not answered. Latency and
+ * allocation may also exceed the baseline by {@link #P99_SLACK_US} and
+ * {@link #ALLOC_SLACK} whatever the tolerance, so small baselines do not
+ * fail on noise.
+ * <p>
+ * Usage: <code>LoadSuite [baseline file] [tolerance %] [scale]</code>
+ */
+public class LoadSuite {
+
+    public static final String DEFAULT_BASELINE = "load-baseline.properties";
+    public static final int DEFAULT_TOLERANCE = 50;
+    /** p99 latency in us above the baseline that is always accepted */
+    public static final long P99_SLACK_US = 500;
+    /** bytes per message above the baseline that are always accepted */
+    public static final long ALLOC_SLACK = 1024;
+    private static final int MAX_MESSAGE_SIZE = 1024 * 1024;
+    private static final long SEED = 20120412L;
+    private static final int ROUNDS = 5;
+    // a run without a finished beam for this long has hung
+    private static final long STALL_MILLIS = 10000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * One kind of load
+     */
+    static class Scenario {
+
+        final String name;
+        final int beams;
+        final int minSize;
+        final int maxSize;
+        final double faultRate;
+        final int miu;
+        final int receiveWindow;
+        final boolean keepLinkAlive;
+
+        Scenario(String name, int beams, int minSize, int maxSize, double faultRate, int miu,
+                int receiveWindow, boolean keepLinkAlive) {
+            this.name = name;
+            this.beams = beams;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.faultRate = faultRate;
+            this.miu = miu;
+            this.receiveWindow = receiveWindow;
+            this.keepLinkAlive = keepLinkAlive;
+        }
+    }
+
+    static final Scenario[] SCENARIOS = {
+        new Scenario("small", 2000, 20, 1024, 0.05, 128, 1, false),
+        new Scenario("mixed", 1000, 20, 64 * 1024, 0.05, 256, 4, true),
+        new Scenario("large", 500, 64 * 1024, 512 * 1024, 0.0, 256, 15, true)
+    };
+
+    /**
+     * Numbers of one scenario run
+     */
+    static class Result {
+
+        long messages;
+        long refused;
+        long bytes;
+        long nanos;
+        long allocated;
+        long errors;
+        // transfer time of every message in us, sorted after the run
+        long[] latencies;
+
+        long percentile(double fraction) {
+            if (messages == 0) {
+                return 0;
+            }
+            long count = Math.min(messages, latencies.length);
+            return latencies[(int) Math.max(0, Math.min(count - 1, (long) Math.ceil(fraction * count) - 1))];
+        }
+
+        double getMessagesPerSecond() {
+            return (nanos <= 0) ? 0 : messages * 1e9 / nanos;
+        }
+
+        double getAllocatedPerMessage() {
+            return (messages == 0) ? 0 : (double) allocated / messages;
+        }
+    }
+
+    /**
+     * Run one scenario
+     *
+     * @param scenario the load
+     * @param scale multiplies the number of beams
+     * @return the numbers
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static Result run(Scenario scenario, double scale) throws InterruptedException {
+        SnepLoadGenerator generator = new SnepLoadGenerator(SEED, scenario.minSize,
+                scenario.maxSize, scenario.faultRate, MAX_MESSAGE_SIZE);
+        AndroidSnepPeer peer = new AndroidSnepPeer();
+        peer.setFragmentSize(scenario.miu);
+        final List<byte[]> expected = new ArrayList<byte[]>();
+        int truncated = 0;
+        int beams = Math.max(1, (int) (scenario.beams * scale));
+        for (int i = 0; i < beams; i++) {
+            SnepLoadGenerator.Beam beam = generator.next();
+            peer.addSnepMessage(beam.getSnep());
+            if (beam.getNdef() != null) {
+                expected.add(beam.getNdef());
+            }
+            if (beam.getFault() == SnepLoadGenerator.Fault.TRUNCATED) {
+                truncated++;
+            }
+        }
+
+        final Result result = new Result();
+        result.latencies = new long[beams];
+        final long[] firstStart = {0};
+        final Connection connection = new Connection(new SimulatedTerminal("Load " + scenario.name, peer));
+        connection.setPollScheduler(new AdaptivePollScheduler(0, 0, 1));
+        connection.setLinkParameters(new LlcpParameters.Builder().miu(scenario.miu).build());
+        connection.setReceiveWindow(scenario.receiveWindow);
+        connection.setKeepLinkAlive(scenario.keepLinkAlive);
+        connection.setMaxMessageSize(MAX_MESSAGE_SIZE);
+        connection.setNdefMessageListener(new NdefMessageListener() {
+
+            @Override
+            public void onNdefMessage(String reader, NdefMessage message) {
+                long nanos = connection.getLastTransfer().getNanos();
+                if (result.messages == 0) {
+                    firstStart[0] = System.nanoTime() - nanos;
+                }
+                int index = (int) result.messages++;
+                if (index < result.latencies.length) {
+                    result.latencies[index] = nanos / 1000;
+                }
+                result.bytes += message.getSize();
+                if (index >= expected.size()
+                        || !message.getBytes().equals(ByteBuffer.wrap(expected.get(index)))) {
+                    result.errors++;
+                }
+            }
+        });
+
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                connection.start();
+                result.allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            }
+        }, "load-" + scenario.name);
+
+        // the reader prints every fragment, keep that out of the numbers
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        try {
+            thread.start();
+            long done = 0;
+            long progress = System.currentTimeMillis();
+            while (thread.isAlive() && done < beams) {
+                Thread.sleep(1);
+                long now = peer.getBeamsCompleted() + peer.getBeamsAbandoned();
+                if (now != done) {
+                    done = now;
+                    progress = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - progress > STALL_MILLIS) {
+                    System.err.println("[Error] " + scenario.name + ": no beam finished for "
+                            + STALL_MILLIS + " ms, " + done + " of " + beams + " done");
+                    result.errors++;
+                    break;
+                }
+            }
+            result.nanos = System.nanoTime() - firstStart[0];
+            connection.stop();
+            thread.join();
+        } finally {
+            System.setOut(out);
+        }
+
+        result.refused = peer.getBeamsRefused();
+        Arrays.sort(result.latencies, 0, (int) Math.min(result.messages, beams));
+        if (result.messages != expected.size()) {
+            result.errors += Math.abs(expected.size() - result.messages);
+        }
+        // every broken beam but a truncated one is answered with a SNEP error
+        if (result.refused != beams - expected.size() - truncated
+                || peer.getBeamsAbandoned() != beams - expected.size()) {
+            result.errors++;
+        }
+        result.errors += peer.getProtocolErrors();
+        return result;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static boolean check(String scenario, String metric, double value, double baseline,
+            boolean higherIsBetter, int tolerance, double slack) {
+        double limit = higherIsBetter ? baseline * (100 - tolerance) / 100
+                : baseline * (100 + tolerance) / 100 + slack;
+        boolean ok = higherIsBetter ? value >= limit : value <= limit;
+        if (!ok) {
+            System.out.println(String.format("[Error] %s %s regressed: %.1f, baseline %.1f, limit %.1f",
+                    scenario, metric, value, baseline, limit));
+        }
+        return ok;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File baselineFile = new File((args.length > 0) ? args[0] : DEFAULT_BASELINE);
+        int tolerance = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_TOLERANCE;
+        double scale = (args.length > 2) ? Double.parseDouble(args[2]) : 1;
+
+        Properties baseline = new Properties();
+        boolean compare = baselineFile.exists();
+        if (compare) {
+            InputStream in = new FileInputStream(baselineFile);
+            try {
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        // one unmeasured round so every scenario runs compiled code
+        for (Scenario scenario : SCENARIOS) {
+            run(scenario, scale);
+        }
+
+        Properties measured = new Properties();
+        boolean ok = true;
+        System.out.println(String.format("%-8s %8s %8s %10s %10s %10s %10s %12s",
+                "scenario", "msgs", "refused", "msgs/s", "MB/s", "p50 us", "p99 us", "alloc B/msg"));
+        for (Scenario scenario : SCENARIOS) {
+            // median of the rounds, so one slow or lucky round moves nothing
+            Result result = null;
+            double[] rates = new double[ROUNDS];
+            double[] p50s = new double[ROUNDS];
+            double[] p99s = new double[ROUNDS];
+            double[] allocations = new double[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                result = run(scenario, scale);
+                if (result.errors > 0) {
+                    System.out.println("[Error] " + scenario.name + ": " + result.errors
+                            + " messages lost, changed, wrongly accepted or not answered");
+                    ok = false;
+                }
+                rates[i] = result.getMessagesPerSecond();
+                p50s[i] = result.percentile(0.5);
+                p99s[i] = result.percentile(0.99);
+                allocations[i] = result.getAllocatedPerMessage();
+            }
+            double rate = median(rates);
+            long p50 = (long) median(p50s);
+            long p99 = (long) median(p99s);
+            double allocated = median(allocations);
+            System.out.println(String.format("%-8s %8d %8d %10.0f %10.2f %10d %10d %12.0f",
+                    scenario.name, result.messages, result.refused, rate,
+                    rate * result.bytes / result.messages / 1e6, p50, p99, allocated));
+
+            measured.setProperty(scenario.name + ".rate", String.valueOf(rate));
+            measured.setProperty(scenario.name + ".p99", String.valueOf(p99));
+            measured.setProperty(scenario.name + ".alloc", String.valueOf(allocated));
+            if (compare && baseline.getProperty(scenario.name + ".rate") != null) {
+                ok &= check(scenario.name, "msgs/s", rate,
+                        Double.parseDouble(baseline.getProperty(scenario.name + ".rate")), true, tolerance, 0);
+                ok &= check(scenario.name, "p99 latency", p99,
+                        Double.parseDouble(baseline.getProperty(scenario.name + ".p99")), false, tolerance,
+                        P99_SLACK_US);
+                ok &= check(scenario.name, "allocation", allocated,
+                        Double.parseDouble(baseline.getProperty(scenario.name + ".alloc")), false, tolerance,
+                        ALLOC_SLACK);
+            }
+        }
+
+        if (!compare) {
+            OutputStream out = new FileOutputStream(baselineFile);
+            try {
+                measured.store(out, "LoadSuite baseline, scale " + scale);
+            } finally {
+                out.close();
+            }
+            System.out.println("Baseline written to " + baselineFile);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+}
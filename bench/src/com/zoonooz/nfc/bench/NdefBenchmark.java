@@ -0,0 +1,66 @@
+/*
+ * NdefBenchmark - Benchmarks of NDEF reassembly and parsing
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefRecord;
+import com.zoonooz.nfc.sim.SimulatedBeam;
+
+/**
+ * Reassembly of a message from 128 byte fragments, then walking its records
+ */
+public class NdefBenchmark {
+
+    private static final int FRAGMENT = 128;
+
+    public static void run(Harness harness) throws Exception {
+        for (int size : Benchmarks.SIZES) {
+            final byte[] ndef = SimulatedBeam.mimeMessage(size);
+
+            harness.run("NdefMessage reassembly " + size, new Harness.Body() {
+
+                @Override
+                public long run() throws Exception {
+                    NdefMessage message = new NdefMessage(ndef.length);
+                    int offset = 0;
+                    while (offset < ndef.length) {
+                        int count = Math.min(FRAGMENT, ndef.length - offset);
+                        message.appendByte(ndef, offset, count);
+                        offset += count;
+                    }
+                    return message.getRecordCount();
+                }
+            });
+
+            final NdefMessage message = new NdefMessage(ndef.length);
+            message.appendByte(ndef);
+            harness.run("NdefMessage records " + size, new Harness.Body() {
+
+                @Override
+                public long run() {
+                    long total = 0;
+                    for (NdefRecord record : message) {
+                        total += record.getPayloadLength() + record.getTnf();
+                    }
+                    return total;
+                }
+            });
+        }
+    }
+}
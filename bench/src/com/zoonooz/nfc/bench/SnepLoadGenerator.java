@@ -0,0 +1,335 @@
+/*
+ * SnepLoadGenerator - Random SNEP PUT requests as Android phones send them
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Generates SNEP PUT requests with the NDEF messages Android Beam sends:
+ * text, URI, Smart Poster, MIME and application messages with an Android
+ * Application Record, alone or several in one message. Sizes are spread
+ * evenly on a log scale between a minimum and a maximum, so small beams are
+ * as common as large ones. A share of the requests is broken in one of the
+ * ways of {@link Fault}. The same seed gives the same requests.
+ */
+public class SnepLoadGenerator {
+
+    /**
+     * How a request is broken
+     */
+    public enum Fault {
+        NONE,
+        /** the phone stops sending before the announced length */
+        TRUNCATED,
+        /** more bytes follow than the announced length */
+        EXCESS_DATA,
+        /** a record claims a payload longer than the message */
+        BAD_RECORD,
+        /** the first record lacks the MB flag */
+        NO_MESSAGE_BEGIN,
+        /** the last record lacks the ME flag */
+        NO_MESSAGE_END,
+        /** bytes after the last record, counted in the announced length */
+        TRAILING_BYTES,
+        /** a SNEP GET instead of a PUT */
+        GET_REQUEST,
+        /** SNEP version 2.0 */
+        BAD_VERSION,
+        /** announces more than the reader accepts */
+        OVERSIZED
+    }
+
+    /**
+     * One generated request
+     */
+    public static class Beam {
+
+        private final byte[] snep;
+        private final byte[] ndef;
+        private final Fault fault;
+
+        Beam(byte[] snep, byte[] ndef, Fault fault) {
+            this.snep = snep;
+            this.ndef = ndef;
+            this.fault = fault;
+        }
+
+        /**
+         * @return the SNEP request as the phone sends it
+         */
+        public byte[] getSnep() {
+            return snep;
+        }
+
+        /**
+         * @return the NDEF message the reader must deliver, null if it must
+         * refuse the request
+         */
+        public byte[] getNdef() {
+            return ndef;
+        }
+
+        public Fault getFault() {
+            return fault;
+        }
+    }
+
+    private static final int TNF_WELL_KNOWN = 0x01;
+    private static final int TNF_MIME_MEDIA = 0x02;
+    private static final int TNF_EXTERNAL_TYPE = 0x04;
+
+    private static final String[] MIME_TYPES = {
+        "text/plain", "text/x-vcard", "image/jpeg", "application/octet-stream",
+        "application/vnd.com.example.android.beam"
+    };
+    private static final String[] PACKAGES = {
+        "com.android.contacts", "com.android.browser", "com.google.android.youtube",
+        "com.example.android.beam"
+    };
+    private static final Fault[] FAULTS = Fault.values();
+
+    private final Random random;
+    private final int minSize;
+    private final int maxSize;
+    private final double faultRate;
+    private final int maxMessageSize;
+
+    /**
+     * @param seed seed of the random sequence
+     * @param minSize smallest NDEF payload to aim for
+     * @param maxSize largest NDEF payload to aim for
+     * @param faultRate share of broken requests, 0 to 1
+     * @param maxMessageSize size limit of the reader, exceeded by
+     * {@link Fault#OVERSIZED}
+     */
+    public SnepLoadGenerator(long seed, int minSize, int maxSize, double faultRate,
+            int maxMessageSize) {
+        this.random = new Random(seed);
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.faultRate = faultRate;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @return the next request
+     */
+    public Beam next() {
+        Fault fault = Fault.NONE;
+        if (random.nextDouble() < faultRate) {
+            fault = FAULTS[1 + random.nextInt(FAULTS.length - 1)];
+        }
+        byte[] ndef = message(size());
+        byte[] snep = snep(ndef);
+
+        switch (fault) {
+            case TRUNCATED:
+                byte[] cut = new byte[6 + random.nextInt(ndef.length)];
+                System.arraycopy(snep, 0, cut, 0, cut.length);
+                return new Beam(cut, null, fault);
+            case EXCESS_DATA:
+                setLength(snep, ndef.length - 1 - random.nextInt(Math.max(1, ndef.length / 2)));
+                return new Beam(snep, null, fault);
+            case BAD_RECORD:
+                // drop ME from the last record and add a record header that does not fit
+                byte[] longer = new byte[snep.length + 3];
+                System.arraycopy(snep, 0, longer, 0, snep.length);
+                longer[6 + lastRecord(ndef)] &= ~0x40;
+                longer[snep.length] = (byte) (0x50 | TNF_WELL_KNOWN);
+                longer[snep.length + 1] = 0x01;
+                longer[snep.length + 2] = (byte) 0xc8;
+                setLength(longer, ndef.length + 3);
+                return new Beam(longer, null, fault);
+            case NO_MESSAGE_BEGIN:
+                snep[6] &= ~0x80;
+                return new Beam(snep, null, fault);
+            case NO_MESSAGE_END:
+                snep[6 + lastRecord(ndef)] &= ~0x40;
+                return new Beam(snep, null, fault);
+            case TRAILING_BYTES:
+                byte[] trailing = new byte[snep.length + 1 + random.nextInt(8)];
+                System.arraycopy(snep, 0, trailing, 0, snep.length);
+                for (int i = snep.length; i < trailing.length; i++) {
+                    trailing[i] = (byte) random.nextInt(256);
+                }
+                setLength(trailing, trailing.length - 6);
+                return new Beam(trailing, null, fault);
+            case GET_REQUEST:
+                snep[1] = 0x01;
+                return new Beam(snep, null, fault);
+            case BAD_VERSION:
+                snep[0] = 0x20;
+                return new Beam(snep, null, fault);
+            case OVERSIZED:
+                setLength(snep, maxMessageSize + 1);
+                return new Beam(snep, null, fault);
+            default:
+                return new Beam(snep, ndef, fault);
+        }
+    }
+
+    private int size() {
+        double log = Math.log(minSize) + random.nextDouble() * (Math.log(maxSize) - Math.log(minSize));
+        return (int) Math.exp(log);
+    }
+
+    /**
+     * Build a message whose payloads add up to about <code>size</code>
+     * bytes
+     */
+    private byte[] message(int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 64);
+        switch (random.nextInt(6)) {
+            case 0:
+                record(out, true, true, TNF_WELL_KNOWN, "T", text(size));
+                break;
+            case 1:
+                record(out, true, true, TNF_WELL_KNOWN, "U", uri(size));
+                break;
+            case 2:
+                record(out, true, true, TNF_WELL_KNOWN, "Sp", smartPoster(size));
+                break;
+            case 3:
+                record(out, true, true, TNF_MIME_MEDIA, mimeType(), bytes(size));
+                break;
+            case 4:
+                // application message followed by the Android Application Record
+                record(out, true, false, TNF_MIME_MEDIA, mimeType(), bytes(size));
+                record(out, false, true, TNF_EXTERNAL_TYPE, "android.com:pkg",
+                        PACKAGES[random.nextInt(PACKAGES.length)].getBytes());
+                break;
+            default:
+                int records = 2 + random.nextInt(4);
+                for (int i = 0; i < records; i++) {
+                    int part = Math.max(1, size / records);
+                    if (random.nextBoolean()) {
+                        record(out, i == 0, i == records - 1, TNF_WELL_KNOWN, "T", text(part));
+                    } else {
+                        record(out, i == 0, i == records - 1, TNF_MIME_MEDIA, mimeType(), bytes(part));
+                    }
+                }
+                break;
+        }
+        return out.toByteArray();
+    }
+
+    private String mimeType() {
+        return MIME_TYPES[random.nextInt(MIME_TYPES.length)];
+    }
+
+    private byte[] text(int size) {
+        byte[] payload = new byte[3 + Math.max(0, size - 3)];
+        payload[0] = 0x02; // UTF-8, language "en"
+        payload[1] = 'e';
+        payload[2] = 'n';
+        for (int i = 3; i < payload.length; i++) {
+            payload[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return payload;
+    }
+
+    private byte[] uri(int size) {
+        byte[] payload = new byte[1 + Math.max(12, size - 1)];
+        payload[0] = 0x04; // https://
+        byte[] host = "example.com/".getBytes();
+        System.arraycopy(host, 0, payload, 1, host.length);
+        for (int i = 1 + host.length; i < payload.length; i++) {
+            payload[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return payload;
+    }
+
+    private byte[] smartPoster(int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 32);
+        record(out, true, false, TNF_WELL_KNOWN, "U", uri(size / 2));
+        record(out, false, false, TNF_WELL_KNOWN, "T", text(size - size / 2));
+        record(out, false, true, TNF_WELL_KNOWN, "act", new byte[]{0x00});
+        return out.toByteArray();
+    }
+
+    private byte[] bytes(int size) {
+        byte[] payload = new byte[size];
+        random.nextBytes(payload);
+        return payload;
+    }
+
+    private static void record(ByteArrayOutputStream out, boolean begin, boolean end,
+            int tnf, String type, byte[] payload) {
+        boolean shortRecord = payload.length <= 0xff;
+        int header = tnf;
+        header |= begin ? 0x80 : 0;
+        header |= end ? 0x40 : 0;
+        header |= shortRecord ? 0x10 : 0;
+        byte[] typeBytes = type.getBytes();
+        out.write(header);
+        out.write(typeBytes.length);
+        if (shortRecord) {
+            out.write(payload.length);
+        } else {
+            out.write(payload.length >> 24);
+            out.write(payload.length >> 16);
+            out.write(payload.length >> 8);
+            out.write(payload.length);
+        }
+        out.write(typeBytes, 0, typeBytes.length);
+        out.write(payload, 0, payload.length);
+    }
+
+    /**
+     * @return offset of the header of the last record in a valid message
+     */
+    private static int lastRecord(byte[] ndef) {
+        int index = 0;
+        while (true) {
+            int header = ndef[index] & 0xff;
+            int typeLength = ndef[index + 1] & 0xff;
+            int payloadLength;
+            int next;
+            if ((header & 0x10) != 0) {
+                payloadLength = ndef[index + 2] & 0xff;
+                next = index + 3;
+            } else {
+                payloadLength = ((ndef[index + 2] & 0xff) << 24) | ((ndef[index + 3] & 0xff) << 16)
+                        | ((ndef[index + 4] & 0xff) << 8) | (ndef[index + 5] & 0xff);
+                next = index + 6;
+            }
+            if ((header & 0x40) != 0) {
+                return index;
+            }
+            index = next + typeLength + payloadLength;
+        }
+    }
+
+    private static byte[] snep(byte[] ndef) {
+        byte[] snep = new byte[6 + ndef.length];
+        snep[0] = 0x10;
+        snep[1] = 0x02;
+        setLength(snep, ndef.length);
+        System.arraycopy(ndef, 0, snep, 6, ndef.length);
+        return snep;
+    }
+
+    private static void setLength(byte[] snep, int length) {
+        snep[2] = (byte) (length >> 24);
+        snep[3] = (byte) (length >> 16);
+        snep[4] = (byte) (length >> 8);
+        snep[5] = (byte) length;
+    }
+}
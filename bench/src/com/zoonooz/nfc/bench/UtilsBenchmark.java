@@ -0,0 +1,106 @@
+/*
+ * UtilsBenchmark - Benchmarks of the NFCIPUtils helpers
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.bench;
+
+import ds.nfcip.BlockAssembler;
+import ds.nfcip.BlockCursor;
+import ds.nfcip.NFCIPUtils;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+/**
+ * byteArrayToString, appendToByteArray, subByteArray and the block Vector
+ * conversions of {@link NFCIPUtils}, next to {@link BlockCursor} and
+ * {@link BlockAssembler}
+ */
+public class UtilsBenchmark {
+
+    public static void run(Harness harness) throws Exception {
+        for (int size : new int[]{16, 64, 256}) {
+            final byte[] data = Benchmarks.data(size);
+            harness.run("byteArrayToString " + size, new Harness.Body() {
+
+                @Override
+                public long run() {
+                    return NFCIPUtils.byteArrayToString(data).length();
+                }
+            });
+        }
+
+        for (int size : Benchmarks.SIZES) {
+            final byte[] data = Benchmarks.data(size);
+            final byte[] fragment = Benchmarks.data(128);
+            harness.run("appendToByteArray " + size + "+128", new Harness.Body() {
+
+                @Override
+                public long run() {
+                    return NFCIPUtils.appendToByteArray(data, fragment).length;
+                }
+            });
+            harness.run("subByteArray " + size, new Harness.Body() {
+
+                @Override
+                public long run() {
+                    return NFCIPUtils.subByteArray(data, 1, data.length - 1).length;
+                }
+            });
+            harness.run("dataToBlockVector " + size + "/64", new Harness.Body() {
+
+                @Override
+                public long run() {
+                    return NFCIPUtils.dataToBlockVector(data, 64).size();
+                }
+            });
+            final Vector<?> blocks = NFCIPUtils.dataToBlockVector(data, 64);
+            harness.run("blockVectorToData " + size + "/64", new Harness.Body() {
+
+                @Override
+                public long run() {
+                    return NFCIPUtils.blockVectorToData(blocks).length;
+                }
+            });
+            final ByteBuffer source = ByteBuffer.wrap(data);
+            final byte[] frame = new byte[64];
+            harness.run("BlockCursor writeBlock " + size + "/64", new Harness.Body() {
+
+                @Override
+                public long run() {
+                    BlockCursor cursor = new BlockCursor(source, 64, true, true);
+                    long total = 0;
+                    while (cursor.next()) {
+                        total += cursor.writeBlock(frame, 0);
+                    }
+                    return total;
+                }
+            });
+            harness.run("BlockAssembler append " + size + "/64", new Harness.Body() {
+
+                @Override
+                public long run() {
+                    BlockAssembler assembler = new BlockAssembler(data.length, true);
+                    for (int i = 0; i < blocks.size(); i++) {
+                        byte[] block = (byte[]) blocks.elementAt(i);
+                        assembler.append(block, 0, block.length);
+                    }
+                    return assembler.size();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * AdaptivePollScheduler - Exponential backoff polling with statistics
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Polls tightly right after a target is detected and backs off
+ * exponentially while nothing connects, never waiting longer than the
+ * latency ceiling. Also keeps time-to-connect statistics.
+ */
+public class AdaptivePollScheduler implements PollScheduler {
+
+    public static final long DEFAULT_MIN_DELAY = 10;
+    public static final long DEFAULT_MAX_DELAY = 200;
+    public static final int DEFAULT_FACTOR = 2;
+
+    private final long minDelay;
+    private final long maxDelay;
+    private final int factor;
+    private long delay;
+    private long waitStart;
+    private int polls;
+
+    private long connectCount = 0;
+    private long pollTotal = 0;
+    private long totalNanos = 0;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos = 0;
+    private long lastNanos = 0;
+
+    public AdaptivePollScheduler() {
+        this(DEFAULT_MIN_DELAY, DEFAULT_MAX_DELAY, DEFAULT_FACTOR);
+    }
+
+    /**
+     * @param minDelay delay in ms right after a target is detected
+     * @param maxDelay latency ceiling in ms
+     * @param factor backoff multiplier applied after every idle poll
+     */
+    public AdaptivePollScheduler(long minDelay, long maxDelay, int factor) {
+        if (minDelay < 0 || maxDelay < minDelay || factor < 1) {
+            throw new IllegalArgumentException("invalid poll delays");
+        }
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.factor = factor;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        delay = minDelay;
+        polls = 0;
+        waitStart = System.nanoTime();
+    }
+
+    @Override
+    public long nextDelay() {
+        return delay;
+    }
+
+    @Override
+    public void onIdlePoll() {
+        polls++;
+        delay = Math.min(maxDelay, Math.max(1, delay) * factor);
+    }
+
+    @Override
+    public void onConnect() {
+        long nanos = System.nanoTime() - waitStart;
+        polls++;
+        connectCount++;
+        pollTotal += polls;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        minNanos = Math.min(minNanos, nanos);
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * @return number of connections seen since creation
+     */
+    public long getConnectCount() {
+        return connectCount;
+    }
+
+    /**
+     * @return average number of polls needed to get a connection
+     */
+    public double getAveragePolls() {
+        return (connectCount == 0) ? 0 : (double) pollTotal / connectCount;
+    }
+
+    /**
+     * @return average time from target detection to connection in ms
+     */
+    public double getAverageTimeToConnect() {
+        return (connectCount == 0) ? 0 : totalNanos / 1e6 / connectCount;
+    }
+
+    public double getMinTimeToConnect() {
+        return (connectCount == 0) ? 0 : minNanos / 1e6;
+    }
+
+    public double getMaxTimeToConnect() {
+        return maxNanos / 1e6;
+    }
+
+    public double getLastTimeToConnect() {
+        return lastNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connects=%d avgPolls=%.1f timeToConnect avg=%.1fms min=%.1fms max=%.1fms",
+                connectCount, getAveragePolls(), getAverageTimeToConnect(),
+                getMinTimeToConnect(), getMaxTimeToConnect());
+    }
+}
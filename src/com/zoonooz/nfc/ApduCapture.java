@@ -0,0 +1,117 @@
+/*
+ * ApduCapture - Binary capture file of APDU exchanges
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Appends every command/response pair of a {@link Connection} to a file, to
+ * be fed back later by {@link com.zoonooz.nfc.sim.CaptureReplayResponder}.
+ * All numbers are big endian:
+ *
+ * <pre>
+ * file    = "NFCC" version(1) record*
+ * record  = start(8) duration(4) commandLength(2) command responseLength(2) response
+ * </pre>
+ *
+ * start is the time the command was sent in us since the file was opened,
+ * duration the us until the response came back. An existing file is
+ * appended to, its start times continue from 0 at every open. Version 1
+ * files had a 4 byte start, which overflowed after about 36 minutes.
+ */
+public class ApduCapture {
+
+    public static final byte[] MAGIC = {'N', 'F', 'C', 'C'};
+    public static final int VERSION = 2;
+
+    private final DataOutputStream out;
+    private final long opened;
+    private long records = 0;
+
+    /**
+     * @param file capture file, created with a header if it does not exist
+     * @throws IOException if the file can not be opened or is a capture of
+     * another version
+     */
+    public ApduCapture(File file) throws IOException {
+        boolean empty = !file.exists() || file.length() == 0;
+        if (!empty) {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                byte[] magic = new byte[MAGIC.length];
+                in.readFully(magic);
+                if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                    throw new IOException(file + " is not a version " + VERSION + " APDU capture");
+                }
+            } finally {
+                in.close();
+            }
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        this.opened = System.nanoTime();
+        if (empty) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+    }
+
+    /**
+     * Append one exchange
+     *
+     * @param command array holding the command APDU
+     * @param commandLength length of the command
+     * @param response array holding the response APDU
+     * @param responseLength length of the response
+     * @param sent System.nanoTime() when the command was sent
+     * @param nanos time until the response came back
+     * @throws IOException if writing fails
+     */
+    public synchronized void record(byte[] command, int commandLength, byte[] response,
+            int responseLength, long sent, long nanos) throws IOException {
+        out.writeLong((sent - opened) / 1000);
+        out.writeInt((int) (nanos / 1000));
+        out.writeShort(commandLength);
+        out.write(command, 0, commandLength);
+        out.writeShort(responseLength);
+        out.write(response, 0, responseLength);
+        records++;
+    }
+
+    /**
+     * @return exchanges written since the file was opened
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ApduFrame - Reusable ACR122U pseudo APDU for PN53x commands
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.nio.ByteBuffer;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+
+/**
+ * Command and response buffers for one channel. The frame
+ * <code>FF 00 00 00 Lc D4 xx payload</code> is written into the same
+ * preallocated array on every call and the response is received into another
+ * one, so a command exchange does not allocate.
+ */
+public final class ApduFrame {
+
+    private static final int HEADER_LENGTH = 5;
+    /** Lc is one byte and also counts D4 and the PN53x instruction */
+    public static final int MAX_PAYLOAD = 0xff - 2;
+    /** Smallest response buffer javax.smartcardio accepts is 258 bytes */
+    private static final int MAX_RESPONSE = 512;
+
+    private final byte[] command = new byte[HEADER_LENGTH + 2 + MAX_PAYLOAD];
+    private final byte[] response = new byte[MAX_RESPONSE];
+    private final ByteBuffer commandBuffer = ByteBuffer.wrap(command);
+    private final ByteBuffer responseBuffer = ByteBuffer.wrap(response);
+    private int commandLength;
+    private int responseLength;
+
+    public ApduFrame() {
+        command[0] = (byte) 0xff;
+        command[1] = (byte) 0x00;
+        command[2] = (byte) 0x00;
+        command[3] = (byte) 0x00;
+        command[HEADER_LENGTH] = (byte) 0xd4;
+    }
+
+    /**
+     * Write a PN53x command into the frame
+     *
+     * @param instruction PN53x command code
+     * @param payload command data, may be null
+     * @param offset start of the data in payload
+     * @param length number of data bytes
+     * @return length of the framed command
+     */
+    public int build(byte instruction, byte[] payload, int offset, int length) {
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("PN53x payload too long (" + length + " bytes)");
+        }
+        command[4] = (byte) (2 + length);
+        command[HEADER_LENGTH + 1] = instruction;
+        if (length > 0) {
+            System.arraycopy(payload, offset, command, HEADER_LENGTH + 2, length);
+        }
+        commandLength = HEADER_LENGTH + 2 + length;
+        return commandLength;
+    }
+
+    public int build(byte instruction, byte[] payload) {
+        return build(instruction, payload, 0, (payload != null) ? payload.length : 0);
+    }
+
+    /**
+     * Send the framed command and receive the answer into the response array
+     *
+     * @param ch channel to the reader
+     * @return length of the response including SW1 SW2
+     * @throws CardException if the transmission failed
+     */
+    public int transmit(CardChannel ch) throws CardException {
+        commandBuffer.clear();
+        commandBuffer.limit(commandLength);
+        responseBuffer.clear();
+        responseLength = ch.transmit(commandBuffer, responseBuffer);
+        return responseLength;
+    }
+
+    /**
+     * @return the command array, valid up to {@link #getCommandLength()}
+     */
+    public byte[] getCommand() {
+        return command;
+    }
+
+    public int getCommandLength() {
+        return commandLength;
+    }
+
+    /**
+     * @return the response array, valid up to {@link #getResponseLength()}
+     *         and only until the next call to transmit
+     */
+    public byte[] getResponse() {
+        return response;
+    }
+
+    public int getResponseLength() {
+        return responseLength;
+    }
+
+    public int getSW1() {
+        return (responseLength >= 2) ? response[responseLength - 2] & 0xff : -1;
+    }
+
+    public int getSW2() {
+        return (responseLength >= 2) ? response[responseLength - 1] & 0xff : -1;
+    }
+}
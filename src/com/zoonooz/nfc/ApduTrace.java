@@ -0,0 +1,125 @@
+/*
+ * ApduTrace - Ring buffer of the last APDU exchanges
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.io.PrintStream;
+
+/**
+ * Keeps the raw bytes, direction and time of the last APDUs in fixed arrays.
+ * Recording is a copy into a preallocated slot, the hex text is only built
+ * when the trace is dumped. Recording is done by the thread driving the
+ * reader, a dump from another thread may show a slot being overwritten.
+ */
+public class ApduTrace {
+
+    public static final int SENT = 0;
+    public static final int RECEIVED = 1;
+
+    public static final int DEFAULT_CAPACITY = 64;
+    /** Bytes kept per APDU, longer ones are truncated */
+    public static final int MAX_APDU = 272;
+
+    private final int capacity;
+    private final byte[] data;
+    private final int[] lengths;
+    private final long[] times;
+    private final byte[] directions;
+    private long count = 0;
+
+    public ApduTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of APDUs kept, commands and responses each count
+     */
+    public ApduTrace(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.data = new byte[capacity * MAX_APDU];
+        this.lengths = new int[capacity];
+        this.times = new long[capacity];
+        this.directions = new byte[capacity];
+    }
+
+    /**
+     * Record one APDU, overwriting the oldest one when full
+     *
+     * @param direction {@link #SENT} or {@link #RECEIVED}
+     * @param apdu array holding the APDU
+     * @param offset start of the APDU
+     * @param length length of the APDU
+     */
+    public void record(int direction, byte[] apdu, int offset, int length) {
+        int slot = (int) (count % capacity);
+        System.arraycopy(apdu, offset, data, slot * MAX_APDU, Math.min(length, MAX_APDU));
+        lengths[slot] = length;
+        times[slot] = System.nanoTime();
+        directions[slot] = (byte) direction;
+        count++;
+    }
+
+    /**
+     * @return number of APDUs recorded since creation or the last clear
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Print the recorded APDUs, oldest first, with the time relative to the
+     * last one
+     *
+     * @param out stream to print to
+     */
+    public void dump(PrintStream out) {
+        long total = count;
+        int kept = (int) Math.min(total, capacity);
+        if (kept == 0) {
+            out.println("[Trace] empty");
+            return;
+        }
+        long last = times[(int) ((total - 1) % capacity)];
+        StringBuilder line = new StringBuilder(MAX_APDU * 3 + 48);
+
+        out.println("[Trace] last " + kept + " of " + total + " APDUs");
+        for (long i = total - kept; i < total; i++) {
+            int slot = (int) (i % capacity);
+            int length = lengths[slot];
+            line.setLength(0);
+            line.append(directions[slot] == SENT ? "[Sent]     " : "[Received] ");
+            line.append(String.format("%10.3f ms (%d bytes):", (times[slot] - last) / 1e6, length));
+            int base = slot * MAX_APDU;
+            for (int j = 0; j < Math.min(length, MAX_APDU); j++) {
+                int b = data[base + j] & 0xff;
+                line.append(' ').append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0x0f, 16));
+            }
+            if (length > MAX_APDU) {
+                line.append(" ...");
+            }
+            out.println(line);
+        }
+    }
+}
@@ -18,10 +18,24 @@
  */
 package com.zoonooz.nfc;
 
+import com.zoonooz.nfc.jfr.InitiatorInitEvent;
+import com.zoonooz.nfc.jfr.LlcpPduEvent;
+import com.zoonooz.nfc.jfr.NdefMessageEvent;
+import com.zoonooz.nfc.jfr.ReaderConnectEvent;
+import com.zoonooz.nfc.jfr.SnepFragmentEvent;
+import com.zoonooz.nfc.ndef.DecoderRegistry;
+import com.zoonooz.nfc.ndef.TypedRecord;
 import ds.nfcip.NFCIPUtils;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.smartcardio.*;
+import jdk.jfr.EventType;
 
 /**
  *
@@ -36,24 +50,70 @@ public class Connection {
     public final static byte TG_INIT_AS_INITIATOR = (byte) 0x50;
     private final static byte TG_SET_DATA = (byte) 0x8e;
     
-    private final static byte[] TG_TARGET_PAYLOAD = {
+    // TgInitAsTarget mode, MIFARE, FeliCa and NFCID3t before the general bytes
+    private final static byte[] TG_TARGET_PREFIX = {
         (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
         (byte) 0x00, (byte) 0x40, (byte) 0x01, (byte) 0xfe, (byte) 0x0f,
         (byte) 0xbb, (byte) 0xba, (byte) 0xa6, (byte) 0xc9, (byte) 0x89,
         (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
         (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xff, (byte) 0xff,
         (byte) 0x01, (byte) 0xfe, (byte) 0x0f, (byte) 0xbb, (byte) 0xba,
-        (byte) 0xa6, (byte) 0xc9, (byte) 0x89, (byte) 0x00, (byte) 0x00,
-        (byte) 0x06, (byte) 0x46, (byte) 0x66, (byte) 0x6D, (byte) 0x01,
-        (byte) 0x01, (byte) 0x11, (byte) 0x02, (byte) 0x02, (byte) 0x00,
-        (byte) 0x80, (byte) 0x04, (byte) 0x01, (byte) 0xfa };
-    private final static byte[] TG_INITIATOR_PAYLOAD = {
-        (byte) 0x01, (byte) 0x02, (byte) 0x46, (byte) 0x66, (byte) 0x6D, 
-        (byte) 0x01, (byte) 0x01, (byte) 0x11, (byte) 0x02, (byte) 0x02, 
-        (byte) 0x00, (byte) 0x80, (byte) 0x04, (byte) 0x01, (byte) 0xfa };
+        (byte) 0xa6, (byte) 0xc9, (byte) 0x89, (byte) 0x00, (byte) 0x00 };
+    private final static byte[] TG_TARGET_PAYLOAD = LlcpParameters.DEFAULT.targetPayload(TG_TARGET_PREFIX);
+    private final static long PRESENCE_TIMEOUT = 1000;
+    // SYMM answers in a row before a beam is given up
+    private final static int MAX_IDLE_EXCHANGES = 100;
+    // ATR_RES: D5 51 status, NFCID3t(10) DIDt BSt BRt TO PPt, general bytes
+    private final static int ATR_GENERAL_BYTES = 18;
+    // wait in ms before a failed InATR is tried again, doubled up to the max
+    private final static long MIN_ACTIVATION_DELAY = 50;
+    private final static long MAX_ACTIVATION_DELAY = 1000;
+    // checked before the per APDU and per fragment events are created
+    private final static EventType LLCP_PDU_EVENTS = EventType.getEventType(LlcpPduEvent.class);
+    private final static EventType SNEP_FRAGMENT_EVENTS = EventType.getEventType(SnepFragmentEvent.class);
     
     private CardTerminal terminal;
+    private Card card;
     private CardChannel ch;
+    private final ApduFrame frame = new ApduFrame();
+    private final byte[] rx = frame.getResponse();
+    // views of the last response, read in place from rx
+    private final Pn53xResponse response = new Pn53xResponse();
+    private final LlcpPdu pdu = new LlcpPdu();
+    private final SnepHeader snep = new SnepHeader();
+    private final ApduTrace trace = new ApduTrace();
+    private ReaderMetrics metrics;
+    private ApduCapture capture;
+    private MessageJournal journal;
+    private long connectTime;
+    private boolean keepLinkAlive = false;
+    private boolean linkUp = false;
+    // SAP of a phone that connected while a message was delivered, -1 if none
+    private int pendingConnect = -1;
+    // runs the listener on a kept link while the reader thread sends SYMM
+    private ExecutorService delivery;
+    private int peerLinkTimeout = LlcpParameters.DEFAULT_LINK_TIMEOUT;
+    private long activationDelay = MIN_ACTIVATION_DELAY;
+    private int maxMessageSize = NdefMessage.DEFAULT_MAX_SIZE;
+    private PayloadSink payloadSink = PayloadSink.HEAP;
+    private PollScheduler pollScheduler = new AdaptivePollScheduler();
+    private LlcpLink link = new LlcpLink(LlcpLink.DEFAULT_RECEIVE_WINDOW);
+    private LlcpParameters linkParameters = LlcpParameters.DEFAULT;
+    private byte[] initiatorPayload = linkParameters.initiatorPayload();
+    private TransferStatistics lastTransfer;
+    private int exchanges = 0;
+    private NdefMessageListener listener;
+    private FragmentListener fragmentListener;
+    private boolean retainMessages = true;
+    private int messageSize;
+    private int messageReceived;
+    private boolean messageComplete;
+    private int messageFragments;
+    // SNEP response sent when the request is refused, -1 for none
+    private int refusal;
+    private volatile boolean running = false;
+    private volatile long beamCount = 0;
+    private long sessionStart;
 
     public Connection() {
         try {
@@ -67,225 +127,807 @@ public class Connection {
             System.out.println("[Error] No terminal");
             System.exit(0);
         }
+        metrics = new ReaderMetrics(terminal.getName());
     }
 
+    /**
+     * Use the given reader instead of the first one found
+     * 
+     * @param terminal the ACR122U terminal
+     */
+    public Connection(CardTerminal terminal) {
+        this.terminal = terminal;
+        this.metrics = new ReaderMetrics(terminal.getName());
+    }
+
+    /**
+     * Receive beams one after another until {@link #stop()} is called or the
+     * reader goes away. The card connection to the reader is kept between
+     * beams and only opened again after an error.
+     */
     public void start() {
-        try {
-            System.out.println("Waiting...");
-            if (terminal.waitForCardPresent(0)) {
-                Thread.sleep(300);
-                System.out.println("Found target");
-                ch = terminal.connect("*").getBasicChannel();
-                if (ch != null) {
-                    initAsInitator();
-                    try {
-                        waitForTouchToBeam();
-                    } catch (CardException ex) {
-                        System.out.println("[Error] " + ex.getMessage());
-                        if (terminal.waitForCardAbsent(0)) {
-                            start();
-                        }
+        running = true;
+        sessionStart = System.nanoTime();
+        beamCount = 0;
 
+        while (running) {
+            try {
+                if (ch == null) {
+                    System.out.println("Waiting...");
+                    if (!terminal.waitForCardPresent(PRESENCE_TIMEOUT)) {
+                        continue;
+                    }
+                    Thread.sleep(300);
+                    System.out.println("Found target");
+                    ReaderConnectEvent event = new ReaderConnectEvent();
+                    event.begin();
+                    card = terminal.connect("*");
+                    ch = card.getBasicChannel();
+                    if (event.shouldCommit()) {
+                        event.reader = terminal.getName();
+                        event.protocol = card.getProtocol();
+                        event.commit();
                     }
-                } else {
-                    System.out.println("[Error] no channel");
                 }
+
+                try {
+                    if (!linkUp && !initAsInitator()) {
+                        // no phone answered, the reader may still report the last one
+                        Thread.sleep(activationDelay);
+                        activationDelay = Math.min(activationDelay * 2, MAX_ACTIVATION_DELAY);
+                        continue;
+                    }
+                    if (waitForTouchToBeam()) {
+                        beamCount++;
+                        System.out.println(String.format("Beams: %d (%.1f per minute)",
+                                beamCount, getBeamsPerMinute()));
+                    }
+                } catch (CardException ex) {
+                    linkUp = false;
+                    System.out.println("[Error] " + ex.getMessage());
+                    trace.dump(System.out);
+                    disconnect();
+                    while (running && !terminal.waitForCardAbsent(PRESENCE_TIMEOUT)) {
+                    }
+                }
+            } catch (InterruptedException ex) {
+                running = false;
+            } catch (CardException ex) {
+                System.out.println("[Error] Problem with connecting to Reader");
+                running = false;
+            }
+        }
+        if (linkUp) {
+            try {
+                sendCommand(IN_RELEASE, new byte[]{0x01});
+            } catch (CardException ex) {
+                // phone already gone
+            }
+            linkUp = false;
+        }
+        disconnect();
+        if (delivery != null) {
+            delivery.shutdown();
+            delivery = null;
+        }
+        if (capture != null) {
+            try {
+                capture.flush();
+            } catch (IOException ex) {
+                System.out.println("[Error] Capture stopped: " + ex.getMessage());
             }
-        } catch (InterruptedException ex) {
-            Logger.getLogger(Connection.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (CardException ex) {
-            System.out.println("[Error] Problem with connecting to Reader");
-            System.exit(0);
         }
     }
 
-    private void initAsInitator() {
-        try {
-            System.out.println("Init as Initiator");
-            sendCommand(TG_INIT_AS_INITIATOR, TG_INITIATOR_PAYLOAD, false);
+    /**
+     * Make {@link #start()} return after the current beam
+     */
+    public void stop() {
+        running = false;
+    }
 
-        } catch (CardException ex) {
-            System.out.println("[Error] " + ex.getMessage());
+    /**
+     * @return number of beams received since start
+     */
+    public long getBeamCount() {
+        return beamCount;
+    }
+
+    /**
+     * @return average number of beams per minute since start
+     */
+    public double getBeamsPerMinute() {
+        long nanos = System.nanoTime() - sessionStart;
+        return (nanos <= 0) ? 0 : beamCount * 60e9 / nanos;
+    }
+
+    private void disconnect() {
+        if (card != null) {
+            try {
+                card.disconnect(false);
+            } catch (CardException ex) {
+                // reader or target already gone
+            }
         }
+        card = null;
+        ch = null;
     }
 
-    private void waitForTouchToBeam() throws CardException {
-        byte[] response ;
-        byte[] targetConnect = {0x01, (byte) 0x01, (byte) 0x04}; //target + connect APDU
-        byte[] targetCC = {0x01, (byte) 0x81, (byte) 0x84}; //target + cc APDU
+    /**
+     * Set the largest SNEP message size accepted from a phone. Messages
+     * announcing a bigger size are refused before any buffer is allocated.
+     * 
+     * @param maxMessageSize size limit in bytes
+     */
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
 
-        System.out.println("Waiting for Beam");
+    /**
+     * Set where received messages are stored. With a mapping sink, raise
+     * {@link #setMaxMessageSize(int)} as well to accept large beams.
+     * 
+     * @param payloadSink the sink, {@link PayloadSink#HEAP} by default
+     */
+    public void setPayloadSink(PayloadSink payloadSink) {
+        this.payloadSink = payloadSink;
+    }
 
-        while (true) {
-            try {
+    /**
+     * Set how long to wait between polls for an Android connection
+     * 
+     * @param pollScheduler the scheduler to use
+     */
+    public void setPollScheduler(PollScheduler pollScheduler) {
+        this.pollScheduler = pollScheduler;
+    }
 
-                Thread.sleep(200);
-                response = sendCommand(IN_DATA_EXCHANGE, targetConnect, false);
+    /**
+     * Deliver received messages to a listener instead of printing the payload
+     * 
+     * @param listener the listener, null to print
+     */
+    public void setNdefMessageListener(NdefMessageListener listener) {
+        this.listener = listener;
+    }
 
-                if (response[3] == 0x11) { // Wait for android connection
-                    System.out.println("Beam receive");
-                    sendCommand(IN_DATA_EXCHANGE, targetCC, false);
-                    getDataFromBeam();
-                    break;
-                }
+    /**
+     * Hand every SNEP fragment to a listener as soon as it arrives
+     * 
+     * @param fragmentListener the listener, null for none
+     */
+    public void setFragmentListener(FragmentListener fragmentListener) {
+        this.fragmentListener = fragmentListener;
+    }
 
-            } catch (InterruptedException ex) {
-                ex.printStackTrace();
+    /**
+     * Choose whether beams are reassembled into an {@link NdefMessage}. When
+     * false the bytes only go to the {@link FragmentListener}, memory use
+     * does not grow with the message size and the
+     * {@link NdefMessageListener} is not called.
+     * 
+     * @param retainMessages false to stream only, true by default
+     */
+    public void setRetainMessages(boolean retainMessages) {
+        this.retainMessages = retainMessages;
+    }
+
+    /**
+     * Keep the LLCP link to the phone up between beams. Instead of releasing
+     * the target after a beam, the reader polls with SYMM PDUs within the
+     * link timeout of the phone, and a phone still in the field beams again
+     * without a new InATR.
+     * <p>
+     * The phone drops the link when no PDU comes within the link timeout it
+     * announced in its ATR_RES, so the reader must not stop polling while
+     * the listener runs. On a kept link the listener and the printing of the
+     * message therefore run on a delivery thread while the reader thread
+     * keeps sending SYMM at half the link timeout. The next beam is only
+     * received after the listener returned, a phone that connects earlier
+     * waits for its CC until then. Hand the messages to a
+     * {@link DispatchingListener} when the listener is slow.
+     * 
+     * @param keepLinkAlive true for warm links, false to release after every
+     * beam
+     */
+    public void setKeepLinkAlive(boolean keepLinkAlive) {
+        this.keepLinkAlive = keepLinkAlive;
+    }
+
+    /**
+     * Set the LLCP receive window announced to the phone. With a window
+     * bigger than 1 the phone may send several fragments before waiting for an
+     * acknowledgement.
+     * 
+     * @param receiveWindow 1 to 15
+     */
+    public void setReceiveWindow(int receiveWindow) {
+        this.link = new LlcpLink(receiveWindow);
+    }
+
+    /**
+     * Set the LLCP parameters sent when the link is activated, used from the
+     * next beam on
+     * 
+     * @param linkParameters MIU, LTO and other link parameters
+     */
+    public void setLinkParameters(LlcpParameters linkParameters) {
+        this.linkParameters = linkParameters;
+        this.initiatorPayload = linkParameters.initiatorPayload();
+    }
+
+    public LlcpParameters getLinkParameters() {
+        return linkParameters;
+    }
+
+    /**
+     * @return numbers of the last complete transfer, null before the first
+     */
+    public TransferStatistics getLastTransfer() {
+        return lastTransfer;
+    }
+
+    public CardTerminal getTerminal() {
+        return terminal;
+    }
+
+    public PollScheduler getPollScheduler() {
+        return pollScheduler;
+    }
+
+    /**
+     * Write every command and response to a capture file, for replaying the
+     * session without reader and phone
+     * 
+     * @param capture the open capture, null to stop capturing
+     */
+    public void setCapture(ApduCapture capture) {
+        this.capture = capture;
+    }
+
+    /**
+     * Record every complete message in a journal. The message is only
+     * queued on the reader thread, writing and fsync happen on the thread of
+     * the journal. Messages are not journaled when
+     * {@link #setRetainMessages(boolean)} is false.
+     * 
+     * @param journal the journal, may be shared by several connections, null
+     * for none
+     */
+    public void setJournal(MessageJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return latency, throughput and error counts of this reader
+     */
+    public ReaderMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the last APDUs exchanged with the reader, dumped on errors
+     */
+    public ApduTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Activate the phone with InATR
+     * 
+     * @return false if no target answered, InATR is tried again later then
+     */
+    private boolean initAsInitator() throws CardException {
+        System.out.println("Init as Initiator");
+        InitiatorInitEvent event = new InitiatorInitEvent();
+        event.begin();
+        pendingConnect = -1;
+        int length = sendCommand(TG_INIT_AS_INITIATOR, initiatorPayload);
+        if (event.shouldCommit()) {
+            event.reader = terminal.getName();
+            event.requestSize = initiatorPayload.length;
+            event.responseSize = length;
+            event.commit();
+        }
+        if (!response.isSuccess()) {
+            metrics.recordPn53xError(response.getError());
+            System.out.println("[Error] InATR failed, status "
+                    + NFCIPUtils.byteToString(response.getError()));
+            return false;
+        }
+        activationDelay = MIN_ACTIVATION_DELAY;
+        peerLinkTimeout = LlcpParameters.parseLinkTimeout(rx, ATR_GENERAL_BYTES,
+                length - 2 - ATR_GENERAL_BYTES);
+        if (peerLinkTimeout < 0) {
+            peerLinkTimeout = LlcpParameters.DEFAULT_LINK_TIMEOUT;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a message was received, false if stopped before or
+     * the target is gone, the link is down then
+     */
+    private boolean waitForTouchToBeam() throws CardException, InterruptedException {
+        byte[] targetConnect = {0x01, (byte) 0x01, (byte) 0x04}; //target + connect APDU
+        byte[] targetSYMM = {0x01, 0x00, 0x00};
+        byte[] targetCC ; //target + cc APDU
+        // a warm link only needs SYMM to stay up
+        byte[] poll = linkUp ? targetSYMM : targetConnect;
+
+        System.out.println(linkUp ? "Waiting for Beam on open link" : "Waiting for Beam");
+        pollScheduler.reset();
+
+        while (running) {
+
+            // the phone may have connected while the last message was delivered
+            int peerSap = pendingConnect;
+            pendingConnect = -1;
+            if (peerSap < 0) {
+                // poll again before the phone gives up on the link
+                Thread.sleep(Math.min(pollScheduler.nextDelay(), peerLinkTimeout / 2));
+                sendCommand(IN_DATA_EXCHANGE, poll);
+
+                if (!response.isSuccess()) {
+                    // phone left or was never activated, activate again
+                    linkUp = false;
+                    return false;
+                } else if (!isSnepConnect()) { // Wait for android connection
+                    pollScheduler.onIdlePoll();
+                    continue;
+                }
+                peerSap = pdu.getSsap();
             }
+
+            pollScheduler.onConnect();
+            connectTime = System.nanoTime();
+            System.out.println("Beam receive");
+            // answer with our receive window, phone SAP from the CONNECT
+            targetCC = link.connectionComplete(peerSap, LlcpPdu.SNEP_SAP);
+            sendCommand(IN_DATA_EXCHANGE, targetCC);
+            return getDataFromBeam(peerSap);
         }
+        return false;
     }
 
-    private void getDataFromBeam() {
-        NdefMessage ndefMessage ;
+    /**
+     * Receive one SNEP PUT request on a connection just completed with CC.
+     * The first fragment is answered with SNEP Continue, the following ones
+     * only with RR when the receive window is full or the phone waits for
+     * it, and the last one with SNEP Success. A request that can not be
+     * accepted is answered with the matching SNEP error response instead,
+     * then the connection is closed and the target released as after a
+     * complete message.
+     * 
+     * @param peerSap SAP the phone connected from
+     * @return true if the message was received completely
+     */
+    private boolean getDataFromBeam(int peerSap) throws CardException {
+        NdefMessage ndefMessage = null;
 
         byte[] target = {0x01};
-        byte[] targetCC = {0x01, (byte) 0x81, (byte) 0x84};
-        byte[] targetDISC = {0x01, (byte) 0x01, (byte) 0x40};
-        byte[] targetDM = {0x01, (byte) 0x81, (byte) 0xc4, 0x00};
-        byte[] targetRR = {0x01, (byte) 0x83, (byte) 0x44, 0x00};
-        byte[] targetResponseSuccess = {0x01, (byte) 0x83, (byte) 0x04, 0x00, (byte) 0x10, (byte) 0x81}; //success no more fragment 
-        byte[] targetResponse = {0x01, (byte) 0x83, (byte) 0x04, 0x00, 0x10, (byte) 0x80}; //success send me more fragment
-        byte[] targetResponseNDEF = {0x01, (byte) 0x83, (byte) 0x04, (byte) 0x00, 
-            0x10, (byte) 0x02, (byte) 0x00, (byte) 0x00, (byte) 0x00, 0x00
-        }; //send empty NDEF to Android to tell him we finished
-
-        byte[] data ;
-        boolean ndefSuccess ;
+        byte[] targetSYMM = {0x01, 0x00, 0x00};
+        byte[] targetDM = snepPdu(peerSap, LlcpPdu.DM, 0x00); //disconnect mode 00h
+        byte[] targetRR = snepPdu(peerSap, LlcpPdu.RR, 0x00);
+        // SNEP responses, sequence byte set when sent
+        byte[] targetResponseSuccess = snepPdu(peerSap, LlcpPdu.I, 0x00,
+                SnepHeader.VERSION, SnepHeader.RESPONSE_SUCCESS, 0x00, 0x00, 0x00, 0x00); //success no more fragment
+        byte[] targetResponse = snepPdu(peerSap, LlcpPdu.I, 0x00,
+                SnepHeader.VERSION, SnepHeader.RESPONSE_CONTINUE, 0x00, 0x00, 0x00, 0x00); //send me more fragment
 
-        int sent = 0; // use for sequence number of LLCP Information PDU
-        int receive = 0;
+        boolean ndefSuccess ;
+        int fragments = 1;
+        long transferStart = System.nanoTime();
+        NdefMessageEvent event = new NdefMessageEvent();
+        event.begin();
+
+        link.reset();
+        linkUp = false;
+        exchanges = 0;
+        messageSize = 0;
+        messageReceived = 0;
+        messageComplete = false;
+        messageFragments = 0;
+        refusal = SnepHeader.RESPONSE_BAD_REQUEST;
 
         try {
             
-            //Get first Put Request SNEP
-            data = sendCommand(IN_DATA_EXCHANGE, targetCC, false); 
-            receive++; 
-            
-            //Received LLCP
-            byte[] llcp = NFCIPUtils.subByteArray(data, 3, data.length - 5);
-            
-            //to SNEP protocol message
-            byte[] snep = NFCIPUtils.subByteArray(llcp, 3, llcp.length - 3); 
+            //Get first Put Request SNEP, the answer to the CC may still be SYMM
+            //an I PDU out of sequence is ignored like in the fragment loop
+            int idle = 0;
+            while (!receivedInformation(peerSap) || !link.onInformation(pdu.getNs())) {
+                checkPeerIdle(++idle);
+                sendCommand(IN_DATA_EXCHANGE, targetSYMM);
+            }
+            if (!snep.wrap(pdu)) {
+                throw new NdefException("Expected SNEP request, received " + pdu);
+            }
+            if (!snep.isSupportedVersion()) {
+                throw refuse(SnepHeader.RESPONSE_UNSUPPORTED_VERSION, "Unsupported SNEP version "
+                        + NFCIPUtils.byteToString(snep.getVersion()));
+            }
+            if (snep.getField() != SnepHeader.PUT) {
+                throw refuse(SnepHeader.RESPONSE_NOT_IMPLEMENTED, "Unsupported SNEP request "
+                        + NFCIPUtils.byteToString(snep.getField()));
+            }
+            metrics.recordFirstFragment(System.nanoTime() - connectTime);
             
             // new NDEF message with size from SNEP
-            int size = (((snep[2] & 0xff) << 24) | ((snep[3] & 0xff) << 16) | (snep[4] & 0xff) << 8) | (snep[5] & 0xff);
-            ndefMessage = new NdefMessage(size); 
+            int size = snep.getMessageLength();
+            if (size <= 0 || size > maxMessageSize) {
+                throw refuse((size > 0) ? SnepHeader.RESPONSE_REJECT : SnepHeader.RESPONSE_BAD_REQUEST,
+                        "Invalid NDEF message size (" + size + " bytes)");
+            }
+            if (retainMessages) {
+                try {
+                    ndefMessage = new NdefMessage(size, maxMessageSize, payloadSink);
+                } catch (NdefException ex) {
+                    throw refuse(SnepHeader.RESPONSE_REJECT, ex.getMessage());
+                }
+            }
+            messageSize = size;
 
-            //SNEP to NDEF Message
-            byte[] ndef = NFCIPUtils.subByteArray(snep, 6, snep.length - 6); 
-            ndefSuccess = ndefMessage.appendByte(ndef); 
+            //SNEP to NDEF Message, straight from the response
+            ndefSuccess = receiveFragment(ndefMessage, rx, snep.getInformationOffset(),
+                    snep.getInformationLength());
             
             
-            //Our NDEF received all byte ?
-            if (ndefSuccess) {
-                
-                System.out.println("Received Success");
-                sendCommand(IN_DATA_EXCHANGE, targetResponseNDEF, false);
-                sendCommand(IN_RELEASE, target, false);
+            if (!ndefSuccess) {
 
-            } else {
-                
-                targetResponse[3] = (byte) ((sent * 16) + receive);
-                sendCommand(IN_DATA_EXCHANGE, targetResponse, false);
-                sent++;
+                // SNEP Continue once, later fragments only need LLCP acknowledgements
+                targetResponse[3] = (byte) link.nextSequence();
+                sendCommand(IN_DATA_EXCHANGE, targetResponse);
+                idle = 0;
 
                 // for next fragment if more
                 while (!ndefSuccess) {
-                    
-                    targetResponse[3] = (byte) ((sent * 16) + receive);
-                    targetResponseNDEF[3] = (byte) ((sent * 16) + receive);
 
-                    data = sendCommand(IN_DATA_EXCHANGE, targetResponseNDEF, false);
-                    sent++;
-                    
                     // for I PDU Data
-                    if (data[3] == 0x13 & data[4] == 0x20) {
-                        
-                        System.out.println("Received fragment");
-                        receive++;
-                        
-                        // Received LLCP
-                        llcp = NFCIPUtils.subByteArray(data, 3, data.length - 5); 
-                        
-                        //to SNEP protocol message (NDEF Fragement)
-                        byte[] fragement = NFCIPUtils.subByteArray(llcp, 3, llcp.length - 3); 
-
-                        //add to our NDEF message
-                        ndefSuccess = ndefMessage.appendByte(fragement);
+                    boolean peerIdle = !receivedInformation(peerSap);
+                    if (peerIdle) {
+                        checkPeerIdle(++idle);
+                    } else if (link.onInformation(pdu.getNs())) {
 
+                        System.out.println("Received fragment");
+                        fragments++;
+                        idle = 0;
+
+                        //add the NDEF fragment to our message
+                        ndefSuccess = receiveFragment(ndefMessage, rx, pdu.getInformationOffset(),
+                                pdu.getInformationLength());
+                        if (ndefSuccess) {
+                            break;
+                        }
                     }
 
-                    // Received all bytes of NDEF
-                    if (ndefSuccess == true) {
-
-                        targetResponseSuccess[3] = (byte) ((sent * 16) + receive);
-                        sendCommand(IN_DATA_EXCHANGE, targetResponseSuccess, false);
-
-                        //Disconnect mode 00h
-                        sendCommand(IN_DATA_EXCHANGE, targetDM, false);
-
-                        //Release target 0x01
-                        sendCommand(IN_RELEASE, target, false);
-
+                    if (link.mustAcknowledge(peerIdle)) {
+                        targetRR[3] = (byte) link.acknowledge();
+                        sendCommand(IN_DATA_EXCHANGE, targetRR);
+                    } else {
+                        // phone may send more before we acknowledge, just pull
+                        sendCommand(IN_DATA_EXCHANGE, targetSYMM);
                     }
-
-
                 }
+            }
 
-
+            // Received all bytes of NDEF, Success also acknowledges the last I PDU
+            System.out.println("Received Success");
+            targetResponseSuccess[3] = (byte) link.nextSequence();
+            sendCommand(IN_DATA_EXCHANGE, targetResponseSuccess);
+            if (keepLinkAlive) {
+                sendCommand(IN_DATA_EXCHANGE, targetDM);
             }
+
+            //Release target 0x01, unless the link is kept
+            releaseTarget(target);
             
-            //Show text payload
-            System.out.println(new String(ndefMessage.getPayload()));
+            lastTransfer = new TransferStatistics(fragments, exchanges,
+                    messageSize, System.nanoTime() - transferStart);
+            metrics.recordMessage(fragments, messageSize, lastTransfer.getNanos());
+            if (journal != null && ndefMessage != null) {
+                journal.append(terminal.getName(), ndefMessage);
+            }
+
+            if (keepLinkAlive) {
+                deliverOnLink(ndefMessage);
+            } else {
+                deliver(ndefMessage);
+            }
+            return true;
             
         } catch (NdefException ex) {
             System.out.println("[Error] " + ex.getMessage());
-        } catch (CardException ex) {
-            System.out.println("[Error] " + ex.getMessage());
+            trace.dump(System.out);
+            if (refusal >= 0) {
+                byte[] targetRefusal = snepPdu(peerSap, LlcpPdu.I, link.nextSequence(),
+                        SnepHeader.VERSION, refusal, 0x00, 0x00, 0x00, 0x00);
+                sendCommand(IN_DATA_EXCHANGE, targetRefusal);
+            }
+            if (keepLinkAlive) {
+                sendCommand(IN_DATA_EXCHANGE, targetDM);
+            }
+            releaseTarget(target);
+            return false;
+        } finally {
+            if (!messageComplete) {
+                metrics.recordAbort();
+            }
+            if (event.shouldCommit()) {
+                event.reader = terminal.getName();
+                event.size = messageSize;
+                event.fragments = messageFragments;
+                event.roundTrips = exchanges;
+                event.complete = messageComplete;
+                event.commit();
+            }
+            if (!messageComplete && fragmentListener != null && messageReceived > 0) {
+                fragmentListener.onAbort(terminal.getName(), messageReceived, messageSize);
+            }
+        }
+    }
+
+    /**
+     * Hand a complete message to the listener, or print it
+     * 
+     * @param ndefMessage the message, null if it was only streamed
+     */
+    private void deliver(NdefMessage ndefMessage) {
+        if (ndefMessage == null) {
+            System.out.println("Streamed " + messageSize + " bytes");
+        } else if (listener == null && ndefMessage.isMapped()) {
+            System.out.println("Stored " + messageSize + " bytes in a mapped file");
+        } else if (listener != null) {
+            listener.onNdefMessage(terminal.getName(), ndefMessage);
+        } else {
+            //Show the records as text, URI, ...
+            for (NdefRecord record : ndefMessage) {
+                TypedRecord typed = DecoderRegistry.DEFAULT.decode(record);
+                System.out.println((typed != null) ? typed.toString()
+                        : "TNF " + record.getTnf() + " (" + record.getPayloadLength() + " bytes)");
+            }
         }
     }
 
-    private byte[] sendCommand(byte intruction, byte[] payload, boolean debug) throws CardException {
+    /**
+     * Deliver a message on the delivery thread and keep the link up with
+     * SYMM until it is done. A CONNECT of the phone in the meantime is
+     * answered when the next beam is received.
+     * 
+     * @param ndefMessage the message, null if it was only streamed
+     */
+    private void deliverOnLink(final NdefMessage ndefMessage) {
+        if (delivery == null) {
+            delivery = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "nfc-deliver-" + terminal.getName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        Future<?> done = delivery.submit(new Runnable() {
 
-        int payloadLength = (payload != null) ? payload.length : 0;
-        byte[] instruction = {(byte) 0xd4, intruction};
+            @Override
+            public void run() {
+                deliver(ndefMessage);
+            }
+        });
+        byte[] targetSYMM = {0x01, 0x00, 0x00};
+        long interval = Math.max(1, peerLinkTimeout / 2);
+        try {
+            while (true) {
+                try {
+                    done.get(linkUp ? interval : Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (TimeoutException ex) {
+                    try {
+                        sendCommand(IN_DATA_EXCHANGE, targetSYMM);
+                    } catch (CardException cardEx) {
+                        // the message is already received, the next InATR finds out more
+                        System.out.println("[Error] " + cardEx.getMessage());
+                        linkUp = false;
+                        continue;
+                    }
+                    if (!response.isSuccess()) {
+                        // phone left, activate again after the delivery
+                        linkUp = false;
+                    } else if (pendingConnect < 0 && isSnepConnect()) {
+                        pendingConnect = pdu.getSsap();
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            running = false;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw (Error) ex.getCause();
+        }
+    }
 
-        byte[] header = {(byte) 0xff, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-            (byte) (instruction.length + payloadLength)};
+    /**
+     * @return true if the last response carries a CONNECT to the SNEP
+     * server, the views then point at it
+     */
+    private boolean isSnepConnect() {
+        return pdu.wrap(response) && pdu.isType(LlcpPdu.CONNECT)
+                && pdu.getDsap() == LlcpPdu.SNEP_SAP;
+    }
 
-        byte[] cmd = NFCIPUtils.appendToByteArray(header, instruction, 0,
-                instruction.length);
+    /**
+     * @return true if the last response carries an I PDU from the phone to
+     * the SNEP server, the views then point at it
+     */
+    private boolean receivedInformation(int peerSap) {
+        return pdu.wrap(response) && pdu.isType(LlcpPdu.I)
+                && pdu.getDsap() == LlcpPdu.SNEP_SAP && pdu.getSsap() == peerSap;
+    }
 
-        cmd = NFCIPUtils.appendToByteArray(cmd, payload);
+    /**
+     * Give up on a phone that closed the connection or stopped sending, no
+     * SNEP response is sent then
+     * 
+     * @param idle exchanges in a row without an I PDU
+     */
+    private void checkPeerIdle(int idle) throws NdefException {
+        if (pdu.isType(LlcpPdu.DISC) || pdu.isType(LlcpPdu.DM)) {
+            throw refuse(-1, "Phone closed the SNEP connection");
+        } else if (idle > MAX_IDLE_EXCHANGES) {
+            throw refuse(-1, "Phone stopped sending after "
+                    + messageReceived + " of " + messageSize + " bytes");
+        }
+    }
+
+    /**
+     * Refuse the SNEP request being received
+     * 
+     * @param snepResponse SNEP response code to answer with, -1 for none
+     * @param message what was wrong
+     * @return the exception to throw
+     */
+    private NdefException refuse(int snepResponse, String message) {
+        refusal = snepResponse;
+        return new NdefException(message);
+    }
 
-        if (debug) {
-            System.out.println("[Sent]     (" + cmd.length + " bytes): " + NFCIPUtils.byteArrayToString(cmd));
+    /**
+     * Build an InDataExchange payload for target 1 carrying a PDU from the
+     * SNEP server to the phone
+     * 
+     * @param peerSap SAP of the phone
+     * @param ptype the PDU type
+     * @param body sequence byte or DM reason and the information field
+     */
+    private static byte[] snepPdu(int peerSap, int ptype, int... body) {
+        byte[] payload = new byte[3 + body.length];
+        payload[0] = 0x01;
+        payload[1] = (byte) ((peerSap << 2) | (ptype >> 2));
+        payload[2] = (byte) (((ptype & 0x03) << 6) | LlcpPdu.SNEP_SAP);
+        for (int i = 0; i < body.length; i++) {
+            payload[3 + i] = (byte) body[i];
         }
+        return payload;
+    }
 
-        CommandAPDU c = new CommandAPDU(cmd);
-        ResponseAPDU response = ch.transmit(c);
+    /**
+     * End the beam: release the target, or keep the link for the next beam
+     */
+    private void releaseTarget(byte[] target) throws CardException {
+        if (keepLinkAlive) {
+            linkUp = true;
+        } else {
+            sendCommand(IN_RELEASE, target);
+        }
+    }
 
-        byte[] responseByte = response.getBytes();
+    /**
+     * Pass a fragment to the fragment listener and the message being
+     * reassembled, if any. Called right after the I PDU carrying it was
+     * received.
+     * 
+     * @return true when the whole message has been received
+     */
+    private boolean receiveFragment(NdefMessage message, byte[] data, int offset, int count)
+            throws NdefException {
+        SnepFragmentEvent event = null;
+        if (SNEP_FRAGMENT_EVENTS.isEnabled()) {
+            event = new SnepFragmentEvent();
+            event.begin();
+        }
+        if (count > messageSize - messageReceived) {
+            throw new NdefException("Ndef error");
+        }
+        if (fragmentListener != null) {
+            fragmentListener.onFragment(terminal.getName(), data, offset, count,
+                    messageReceived, messageSize);
+        }
+        int fragmentOffset = messageReceived;
+        messageFragments++;
+        messageReceived += count;
+        if (message != null) {
+            messageComplete = message.appendByte(data, offset, count);
+        } else {
+            messageComplete = messageReceived == messageSize;
+        }
+        if (event != null && event.shouldCommit()) {
+            event.reader = terminal.getName();
+            event.fragment = messageFragments - 1;
+            event.messageOffset = fragmentOffset;
+            event.size = count;
+            event.totalSize = messageSize;
+            event.commit();
+        }
+        if (messageComplete && fragmentListener != null) {
+            fragmentListener.onComplete(terminal.getName(), messageSize);
+        }
+        return messageComplete;
+    }
 
+    /**
+     * Send a PN53x command to the reader. The response is left in
+     * <code>rx</code> and stays valid until the next command.
+     * 
+     * @return length of the response including SW1 SW2
+     */
+    private int sendCommand(byte intruction, byte[] payload) throws CardException {
+
+        int commandLength = frame.build(intruction, payload);
+        trace.record(ApduTrace.SENT, frame.getCommand(), 0, commandLength);
+
+        LlcpPduEvent event = null;
+        if (intruction == IN_DATA_EXCHANGE && LLCP_PDU_EVENTS.isEnabled()) {
+            event = new LlcpPduEvent();
+            event.begin();
+        }
+        long sent = System.nanoTime();
+        int length = frame.transmit(ch);
+        long nanos = System.nanoTime() - sent;
+        response.wrap(rx, length);
+        metrics.recordApdu(intruction, nanos);
+        exchanges++;
+        trace.record(ApduTrace.RECEIVED, rx, 0, length);
+        if (capture != null) {
+            try {
+                capture.record(frame.getCommand(), commandLength, rx, length, sent, nanos);
+            } catch (IOException ex) {
+                System.out.println("[Error] Capture stopped: " + ex.getMessage());
+                capture = null;
+            }
+        }
 
-        if (debug) {
-            System.out.println("[Received] (" + responseByte.length + " bytes): " + NFCIPUtils.byteArrayToString(responseByte));
+        if (event != null && event.shouldCommit()) {
+            // LLCP after the target number, and after D5 41 status up to SW1 SW2
+            event.reader = terminal.getName();
+            event.setPdu(payload, 1, payload.length - 1, true);
+            event.setPdu(rx, response.getDataOffset(), response.getDataLength(), false);
+            event.commit();
         }
 
-        if (response.getSW1() == 0x63 && response.getSW2() == 0x27) {
+        int sw1 = frame.getSW1();
+        int sw2 = frame.getSW2();
+
+        if (sw1 == 0x63 && sw2 == 0x27) {
+            metrics.recordStatusWord(sw1, sw2);
             throw new CardException(
                     "wrong checksum from contactless response (0x63 0x27");
-        } else if (response.getSW1() == 0x63 && response.getSW2() == 0x7f) {
+        } else if (sw1 == 0x63 && sw2 == 0x7f) {
+            metrics.recordStatusWord(sw1, sw2);
             throw new CardException("wrong PN53x command (0x63 0x7f)");
-        } else if (response.getBytes()[2] == 0x29) {
+        } else if (response.getError() == Pn53xResponse.STATUS_TARGET_RELEASED) {
+            metrics.recordPn53xError(response.getError());
             throw new CardException("Card remove ?");
-        } else if (response.getSW1() != 0x90 && response.getSW2() != 0x00) {
+        } else if (sw1 != 0x90 && sw2 != 0x00) {
+            metrics.recordStatusWord(sw1, sw2);
             throw new CardException("unknown error ("
-                    + NFCIPUtils.byteToString(response.getSW1()) + " "
-                    + NFCIPUtils.byteToString(response.getSW2()));
+                    + NFCIPUtils.byteToString(sw1) + " "
+                    + NFCIPUtils.byteToString(sw2));
         }
 
-        return responseByte;
+        return length;
 
     }
 }
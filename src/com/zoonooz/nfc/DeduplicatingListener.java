@@ -0,0 +1,65 @@
+/*
+ * DeduplicatingListener - Drop or flag repeated NDEF messages
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Puts a {@link DuplicateFilter} in front of a listener. Duplicates are
+ * either not delivered at all or delivered with
+ * {@link NdefMessage#isDuplicate()} set. Give the same instance to every
+ * reader, e.g. to {@link ReaderManager}, to catch a phone tapped on two
+ * readers.
+ *
+ * <pre>
+ * new ReaderManager(new DeduplicatingListener(listener, new DuplicateFilter(), true));
+ * </pre>
+ */
+public class DeduplicatingListener implements NdefMessageListener {
+
+    private final NdefMessageListener listener;
+    private final DuplicateFilter filter;
+    private final boolean suppress;
+
+    /**
+     * @param listener gets the messages that pass
+     * @param filter remembers the messages seen
+     * @param suppress true to drop duplicates, false to flag them
+     */
+    public DeduplicatingListener(NdefMessageListener listener, DuplicateFilter filter,
+            boolean suppress) {
+        this.listener = listener;
+        this.filter = filter;
+        this.suppress = suppress;
+    }
+
+    @Override
+    public void onNdefMessage(String reader, NdefMessage message) {
+        if (filter.isDuplicate(message)) {
+            if (suppress) {
+                System.out.println("Duplicate message from " + reader + " dropped");
+                return;
+            }
+            message.setDuplicate(true);
+        }
+        listener.onNdefMessage(reader, message);
+    }
+
+    public DuplicateFilter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * DispatchingListener - Hand received messages to a pool of worker threads
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puts every message in a bounded queue and returns, worker threads take
+ * them out and call the real listener. The reader thread only pays for the
+ * enqueue and goes back to polling while the message is processed. When the
+ * queue is full the {@link Overflow} policy decides between waiting and
+ * dropping, so a slow consumer can never make the queue grow without
+ * bound.
+ */
+public class DispatchingListener implements NdefMessageListener {
+
+    public static final int DEFAULT_CAPACITY = 64;
+    public static final long DEFAULT_BLOCK_TIMEOUT = 1000;
+
+    /**
+     * What a reader does when the queue is full
+     */
+    public enum Overflow {
+        /** wait up to the block timeout for room, then drop the message */
+        BLOCK,
+        /** drop the new message */
+        DROP_NEWEST,
+        /** drop the oldest queued message to make room */
+        DROP_OLDEST
+    }
+
+    private static class Task {
+
+        final String reader;
+        final NdefMessage message;
+        final long queued;
+
+        Task(String reader, NdefMessage message) {
+            this.reader = reader;
+            this.message = message;
+            this.queued = System.nanoTime();
+        }
+    }
+
+    private final NdefMessageListener listener;
+    private final BlockingQueue<Task> queue;
+    private final Overflow overflow;
+    private final Thread[] workers;
+    private final Histogram waitTime = new Histogram();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+    private long blockTimeout = DEFAULT_BLOCK_TIMEOUT;
+    private volatile boolean running = true;
+
+    /**
+     * Start one worker with a queue of {@link #DEFAULT_CAPACITY} messages,
+     * dropping new messages when it is full
+     *
+     * @param listener processes the messages on the worker thread
+     */
+    public DispatchingListener(NdefMessageListener listener) {
+        this(listener, DEFAULT_CAPACITY, 1, Overflow.DROP_NEWEST);
+    }
+
+    /**
+     * @param listener processes the messages, called from several threads at
+     * once when there is more than one worker
+     * @param capacity number of messages the queue holds
+     * @param threads number of worker threads
+     * @param overflow what to do when the queue is full
+     */
+    public DispatchingListener(NdefMessageListener listener, int capacity, int threads,
+            Overflow overflow) {
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<Task>(capacity);
+        this.overflow = overflow;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "nfc-dispatch-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * @param blockTimeout ms a reader waits for room with {@link Overflow#BLOCK}
+     */
+    public void setBlockTimeout(long blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    @Override
+    public void onNdefMessage(String reader, NdefMessage message) {
+        Task task = new Task(reader, message);
+        boolean queued;
+        switch (overflow) {
+            case BLOCK:
+                try {
+                    queued = queue.offer(task, blockTimeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    queued = false;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(task)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                queued = true;
+                break;
+            default:
+                queued = queue.offer(task);
+                break;
+        }
+        if (!queued) {
+            dropped.incrementAndGet();
+            System.out.println("[Error] Queue full, message from " + reader + " dropped");
+            return;
+        }
+        long depth = queue.size();
+        long max = maxDepth.get();
+        while (depth > max && !maxDepth.compareAndSet(max, depth)) {
+            max = maxDepth.get();
+        }
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            Task task;
+            try {
+                task = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            if (task == null) {
+                continue;
+            }
+            waitTime.record((System.nanoTime() - task.queued) / 1000);
+            try {
+                listener.onNdefMessage(task.reader, task.message);
+            } catch (RuntimeException ex) {
+                System.out.println("[Error] Listener failed: " + ex);
+            }
+            processed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stop the workers after the queued messages are processed
+     *
+     * @param timeout ms to wait for the queue to drain
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop(long timeout) throws InterruptedException {
+        running = false;
+        long end = System.currentTimeMillis() + timeout;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, end - System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return messages waiting now
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return time between enqueue and the start of processing, in us
+     */
+    public HistogramSnapshot getWaitTime() {
+        return waitTime.snapshot();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + getQueueDepth() + " (max " + getMaxQueueDepth() + "), wait "
+                + waitTime.snapshot() + " us, " + getProcessed() + " processed, "
+                + getDropped() + " dropped";
+    }
+}
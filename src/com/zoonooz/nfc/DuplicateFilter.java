@@ -0,0 +1,133 @@
+/*
+ * DuplicateFilter - Recognize NDEF messages received again
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers a 64 bit hash and the size of the last messages seen, least
+ * recently seen first out. A message is a duplicate if the same content was
+ * seen on any reader less than the window ago, counted from the last time
+ * it was seen, so a phone held on the reader keeps being a duplicate. The
+ * hash is computed outside the lock, one filter can be shared by all readers.
+ */
+public class DuplicateFilter {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_WINDOW = 5000;
+
+    private static final long PRIME = 0x9e3779b97f4a7c15L;
+
+    private final long windowNanos;
+    private final Map<Long, long[]> seen;
+    private long duplicates = 0;
+    private long unique = 0;
+
+    public DuplicateFilter() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param capacity number of messages remembered
+     * @param window ms during which the same content counts as a duplicate
+     */
+    public DuplicateFilter(final int capacity, long window) {
+        this.windowNanos = window * 1000000L;
+        this.seen = new LinkedHashMap<Long, long[]>(capacity * 4 / 3 + 1, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Check a message and remember it as seen now
+     *
+     * @param message a complete message
+     * @return true if the same content was seen within the window
+     */
+    public boolean isDuplicate(NdefMessage message) {
+        ByteBuffer bytes = message.getBytes();
+        int size = bytes.remaining();
+        long hash = hash(bytes);
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            long[] entry = seen.get(hash);
+            // entry[0] size, entry[1] last seen
+            boolean duplicate = entry != null && entry[0] == size
+                    && now - entry[1] < windowNanos;
+            if (entry == null) {
+                seen.put(hash, new long[]{size, now});
+            } else {
+                entry[0] = size;
+                entry[1] = now;
+            }
+            if (duplicate) {
+                duplicates++;
+            } else {
+                unique++;
+            }
+            return duplicate;
+        }
+    }
+
+    /**
+     * Hash the remaining bytes eight at a time
+     *
+     * @param bytes bytes to hash, position and limit are not changed
+     * @return 64 bit hash
+     */
+    public static long hash(ByteBuffer bytes) {
+        int index = bytes.position();
+        int end = bytes.limit();
+        long h = PRIME ^ (end - index);
+        for (; end - index >= 8; index += 8) {
+            h = Long.rotateLeft((h ^ bytes.getLong(index)) * PRIME, 29);
+        }
+        for (; index < end; index++) {
+            h = Long.rotateLeft((h ^ (bytes.get(index) & 0xff)) * PRIME, 29);
+        }
+        // final mix so that all input bits reach all output bits
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getUnique() {
+        return unique;
+    }
+
+    public synchronized void clear() {
+        seen.clear();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * FragmentListener - Receiver of SNEP fragments while a beam is running
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Gets the NDEF bytes of a beam fragment by fragment, in order, from the
+ * thread driving the reader. The transfer waits while a method runs, so
+ * slow work should be handed off. The fragment array is reused for the next
+ * exchange and must not be kept after the call returns.
+ */
+public interface FragmentListener {
+
+    /**
+     * @param reader name of the terminal the beam comes from
+     * @param data array holding the fragment
+     * @param offset start of the fragment in data
+     * @param length number of NDEF bytes in the fragment
+     * @param messageOffset position of the fragment in the NDEF message
+     * @param totalSize size of the whole NDEF message from the SNEP header
+     */
+    void onFragment(String reader, byte[] data, int offset, int length,
+            int messageOffset, int totalSize);
+
+    /**
+     * The last fragment has been received
+     *
+     * @param reader name of the terminal the beam comes from
+     * @param totalSize size of the whole NDEF message
+     */
+    void onComplete(String reader, int totalSize);
+
+    /**
+     * The beam ended before the last fragment, e.g. the phone was taken away
+     *
+     * @param reader name of the terminal the beam comes from
+     * @param received number of NDEF bytes delivered before the failure
+     * @param totalSize size announced in the SNEP header
+     */
+    void onAbort(String reader, int received, int totalSize);
+}
@@ -0,0 +1,103 @@
+/*
+ * HistogramSnapshot - Copy of a histogram at one point in time
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Counts of a {@link Histogram}, shown as one composite attribute over JMX.
+ * Percentiles are the upper limit of the bucket they fall in.
+ */
+public class HistogramSnapshot {
+
+    private final long count;
+    private final long sum;
+    private final long max;
+    private final long[] buckets;
+
+    @ConstructorProperties({"count", "sum", "max", "buckets"})
+    public HistogramSnapshot(long count, long sum, long max, long[] buckets) {
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.buckets = buckets;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    public double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    public long getP50() {
+        return percentile(0.50);
+    }
+
+    public long getP90() {
+        return percentile(0.90);
+    }
+
+    public long getP99() {
+        return percentile(0.99);
+    }
+
+    /**
+     * @param fraction 0 to 1
+     * @return upper limit of the bucket holding the value at that rank, never
+     * more than the largest value seen
+     */
+    public long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] > 0) {
+                return Math.min(max, Histogram.upperLimit(i));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p99=%d max=%d",
+                count, getMean(), getP50(), getP99(), max);
+    }
+}
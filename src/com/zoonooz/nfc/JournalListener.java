@@ -0,0 +1,33 @@
+/*
+ * JournalListener - Receiver of the records read back from a journal
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Gets every valid record of a {@link MessageJournal} segment, in the order
+ * they were written.
+ */
+public interface JournalListener {
+
+    /**
+     * @param reader name of the terminal the message came from
+     * @param time ms since the epoch when the message was complete
+     * @param message the message, a view of the mapped segment file
+     */
+    void onRecord(String reader, long time, NdefMessage message);
+}
@@ -0,0 +1,123 @@
+/*
+ * LinkParameterComparison - Compare transfers under different LLCP settings
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.TerminalFactory;
+
+/**
+ * Receives the same beam several times for every LLCP setting and prints the
+ * average fragments, round trips and bytes per second of each one.
+ * <p>
+ * Usage: <code>LinkParameterComparison [beams] [miu:lto ...]</code>, for
+ * example <code>LinkParameterComparison 3 128:1000 256:1000 256:2500</code>
+ */
+public class LinkParameterComparison {
+
+    private final CardTerminal terminal;
+    private final int beams;
+
+    public LinkParameterComparison(CardTerminal terminal, int beams) {
+        this.terminal = terminal;
+        this.beams = beams;
+    }
+
+    /**
+     * Receive <code>beams</code> messages with the given parameters
+     *
+     * @param parameters LLCP setting to measure
+     * @return one entry per received beam
+     */
+    public List<TransferStatistics> measure(LlcpParameters parameters) {
+        final List<TransferStatistics> results = new ArrayList<TransferStatistics>();
+        final Connection connection = new Connection(terminal);
+        connection.setLinkParameters(parameters);
+        connection.setNdefMessageListener(new NdefMessageListener() {
+
+            @Override
+            public void onNdefMessage(String reader, NdefMessage message) {
+                results.add(connection.getLastTransfer());
+                if (results.size() >= beams) {
+                    connection.stop();
+                }
+            }
+        });
+        System.out.println("Beam " + beams + " times with " + parameters);
+        connection.start();
+        return results;
+    }
+
+    /**
+     * Print the averages of one setting
+     */
+    public static void report(LlcpParameters parameters, List<TransferStatistics> results) {
+        if (results.isEmpty()) {
+            System.out.println(parameters + ": no transfer");
+            return;
+        }
+        double fragments = 0;
+        double roundTrips = 0;
+        double bytes = 0;
+        double nanos = 0;
+        for (TransferStatistics stats : results) {
+            fragments += stats.getFragments();
+            roundTrips += stats.getRoundTrips();
+            bytes += stats.getBytes();
+            nanos += stats.getNanos();
+        }
+        int n = results.size();
+        System.out.println(String.format("%s: %.0f bytes, %.1f fragments, %.1f round trips, %.1f ms, %.0f bytes/s",
+                parameters, bytes / n, fragments / n, roundTrips / n, nanos / n / 1e6,
+                (nanos == 0) ? 0 : bytes * 1e9 / nanos));
+    }
+
+    public static void main(String[] args) throws CardException {
+        int beams = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+        List<LlcpParameters> settings = new ArrayList<LlcpParameters>();
+        for (int i = 1; i < args.length; i++) {
+            String[] setting = args[i].split(":");
+            settings.add(new LlcpParameters.Builder()
+                    .miu(Integer.parseInt(setting[0]))
+                    .linkTimeout(Integer.parseInt(setting[1]))
+                    .build());
+        }
+        if (settings.isEmpty()) {
+            settings.add(new LlcpParameters.Builder().miu(LlcpParameters.DEFAULT_MIU).build());
+            settings.add(new LlcpParameters.Builder().miu(192).build());
+            settings.add(new LlcpParameters.Builder().miu(LlcpParameters.MAX_MIU).build());
+        }
+
+        List<CardTerminal> terminals = TerminalFactory.getDefault().terminals().list();
+        if (terminals.isEmpty()) {
+            System.out.println("[Error] No terminal");
+            return;
+        }
+        LinkParameterComparison comparison = new LinkParameterComparison(terminals.get(0), beams);
+        List<List<TransferStatistics>> results = new ArrayList<List<TransferStatistics>>();
+        for (LlcpParameters parameters : settings) {
+            results.add(comparison.measure(parameters));
+        }
+        for (int i = 0; i < settings.size(); i++) {
+            report(settings.get(i), results.get(i));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * LlcpLink - Sequence numbers and receive window of an LLCP data link
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * State of one connection-oriented LLCP data link: the send state V(S), the
+ * receive state V(R) and the number of I PDUs received but not acknowledged
+ * yet. The receive window is announced to the phone with the RW parameter of
+ * the CC PDU, the phone may then send that many I PDUs before it has to wait
+ * for an acknowledgement.
+ */
+public class LlcpLink {
+
+    public static final int DEFAULT_RECEIVE_WINDOW = 4;
+    public static final int MAX_RECEIVE_WINDOW = 15;
+
+    /** RW parameter type */
+    private static final byte PARAM_RW = (byte) 0x05;
+
+    private final int receiveWindow;
+    private int sendState = 0;
+    private int receiveState = 0;
+    private int unacknowledged = 0;
+
+    /**
+     * @param receiveWindow number of I PDUs the phone may send before it
+     *        needs an acknowledgement, 1 to 15
+     */
+    public LlcpLink(int receiveWindow) {
+        if (receiveWindow < 1 || receiveWindow > MAX_RECEIVE_WINDOW) {
+            throw new IllegalArgumentException("LLCP receive window must be 1 to 15");
+        }
+        this.receiveWindow = receiveWindow;
+    }
+
+    /**
+     * Start a new data link connection
+     */
+    public void reset() {
+        sendState = 0;
+        receiveState = 0;
+        unacknowledged = 0;
+    }
+
+    public int getReceiveWindow() {
+        return receiveWindow;
+    }
+
+    /**
+     * Build the target byte and CC PDU with the RW parameter
+     *
+     * @param dsap SAP of the phone
+     * @param ssap our SAP
+     * @return the InDataExchange payload
+     */
+    public byte[] connectionComplete(int dsap, int ssap) {
+        return new byte[]{0x01,
+            (byte) ((dsap << 2) | 0x01), (byte) (0x80 | ssap),
+            PARAM_RW, 0x01, (byte) receiveWindow};
+    }
+
+    /**
+     * An I PDU was received
+     *
+     * @param ns the N(S) field of the PDU
+     * @return false if the PDU is out of sequence and must be ignored
+     */
+    public boolean onInformation(int ns) {
+        if ((ns & 0x0f) != receiveState) {
+            return false;
+        }
+        receiveState = (receiveState + 1) & 0x0f;
+        unacknowledged++;
+        return true;
+    }
+
+    /**
+     * Take the sequence byte for our next I PDU, which also acknowledges
+     * everything received so far
+     *
+     * @return N(S) in the high nibble, N(R) in the low nibble
+     */
+    public int nextSequence() {
+        int sequence = (sendState << 4) | receiveState;
+        sendState = (sendState + 1) & 0x0f;
+        unacknowledged = 0;
+        return sequence;
+    }
+
+    /**
+     * Take N(R) for an RR PDU
+     *
+     * @return the receive state V(R)
+     */
+    public int acknowledge() {
+        unacknowledged = 0;
+        return receiveState;
+    }
+
+    /**
+     * @param peerIdle true if the phone answered the last PDU without an I PDU
+     * @return true if received I PDUs must be acknowledged now, either because
+     *         the window is full or because the phone is waiting for it
+     */
+    public boolean mustAcknowledge(boolean peerIdle) {
+        return unacknowledged >= receiveWindow || (peerIdle && unacknowledged > 0);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * LlcpParameters - LLCP link activation parameters
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * LLCP parameters sent in the ATR general bytes: the LLCP magic number
+ * followed by VERSION, MIUX, WKS, LTO and OPT TLVs. Use {@link Builder} to
+ * create one.
+ */
+public class LlcpParameters {
+
+    private static final byte[] MAGIC = {(byte) 0x46, (byte) 0x66, (byte) 0x6D};
+
+    private static final byte PARAM_VERSION = 0x01;
+    private static final byte PARAM_MIUX = 0x02;
+    private static final byte PARAM_WKS = 0x03;
+    private static final byte PARAM_LTO = 0x04;
+    private static final byte PARAM_OPT = 0x07;
+
+    /** Default MIU of LLCP, also the smallest one */
+    public static final int DEFAULT_MIU = 128;
+    /** Link timeout in ms of a peer that does not send the LTO parameter */
+    public static final int DEFAULT_LINK_TIMEOUT = 100;
+    /** Largest MIU whose I PDU still fits the 262 data bytes of a PN53x exchange */
+    public static final int MAX_MIU = 256;
+
+    /** Version 1.1, MIU 256, LTO 2.5s, as the reader always used */
+    public static final LlcpParameters DEFAULT = new Builder().build();
+
+    private final int versionMajor;
+    private final int versionMinor;
+    private final int miu;
+    private final int wks;
+    private final int lto;
+    private final int opt;
+    private final byte[] generalBytes;
+
+    private LlcpParameters(Builder builder) {
+        this.versionMajor = builder.versionMajor;
+        this.versionMinor = builder.versionMinor;
+        this.miu = builder.miu;
+        this.wks = builder.wks;
+        this.lto = builder.lto;
+        this.opt = builder.opt;
+        this.generalBytes = encode();
+    }
+
+    private byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MAGIC, 0, MAGIC.length);
+
+        out.write(PARAM_VERSION);
+        out.write(1);
+        out.write((versionMajor << 4) | versionMinor);
+
+        if (miu != DEFAULT_MIU) {
+            int miux = miu - DEFAULT_MIU;
+            out.write(PARAM_MIUX);
+            out.write(2);
+            out.write((miux >> 8) & 0x07);
+            out.write(miux & 0xff);
+        }
+
+        if (wks >= 0) {
+            out.write(PARAM_WKS);
+            out.write(2);
+            out.write((wks >> 8) & 0xff);
+            out.write(wks & 0xff);
+        }
+
+        out.write(PARAM_LTO);
+        out.write(1);
+        out.write(lto);
+
+        if (opt >= 0) {
+            out.write(PARAM_OPT);
+            out.write(1);
+            out.write(opt);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return copy of the general bytes, magic number and TLVs
+     */
+    public byte[] getGeneralBytes() {
+        return generalBytes.clone();
+    }
+
+    /**
+     * @return InATR payload: target 1, general bytes present, general bytes
+     */
+    public byte[] initiatorPayload() {
+        byte[] payload = new byte[2 + generalBytes.length];
+        payload[0] = 0x01;
+        payload[1] = 0x02;
+        System.arraycopy(generalBytes, 0, payload, 2, generalBytes.length);
+        return payload;
+    }
+
+    /**
+     * @param prefix TgInitAsTarget mode, MIFARE, FeliCa and NFCID3t fields
+     * @return TgInitAsTarget payload: prefix, LEN Gt, general bytes, LEN Tk 0
+     */
+    public byte[] targetPayload(byte[] prefix) {
+        byte[] payload = new byte[prefix.length + 2 + generalBytes.length];
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        payload[prefix.length] = (byte) generalBytes.length;
+        System.arraycopy(generalBytes, 0, payload, prefix.length + 1, generalBytes.length);
+        return payload;
+    }
+
+    public int getMiu() {
+        return miu;
+    }
+
+    /**
+     * @return link timeout in ms
+     */
+    public int getLinkTimeout() {
+        return lto * 10;
+    }
+
+    /**
+     * Read the link timeout of the peer from its general bytes, e.g. the
+     * ATR_RES of the phone
+     * 
+     * @param bytes array holding the general bytes
+     * @param offset start of the LLCP magic number
+     * @param length length of the general bytes
+     * @return LTO in ms, {@link #DEFAULT_LINK_TIMEOUT} if not sent, -1 if
+     * the bytes are not LLCP parameters
+     */
+    public static int parseLinkTimeout(byte[] bytes, int offset, int length) {
+        if (length < MAGIC.length || bytes[offset] != MAGIC[0]
+                || bytes[offset + 1] != MAGIC[1] || bytes[offset + 2] != MAGIC[2]) {
+            return -1;
+        }
+        int index = offset + MAGIC.length;
+        int end = offset + length;
+        while (index + 1 < end) {
+            int type = bytes[index];
+            int tlvLength = bytes[index + 1] & 0xff;
+            if (type == PARAM_LTO && tlvLength == 1 && index + 2 < end) {
+                return (bytes[index + 2] & 0xff) * 10;
+            }
+            index += 2 + tlvLength;
+        }
+        return DEFAULT_LINK_TIMEOUT;
+    }
+
+    @Override
+    public String toString() {
+        return "LLCP " + versionMajor + "." + versionMinor + " MIU=" + miu
+                + " LTO=" + getLinkTimeout() + "ms";
+    }
+
+    /**
+     * Builder for {@link LlcpParameters}
+     */
+    public static class Builder {
+
+        private int versionMajor = 1;
+        private int versionMinor = 1;
+        private int miu = 256;
+        private int wks = -1;
+        private int lto = 0xfa;
+        private int opt = -1;
+
+        public Builder version(int major, int minor) {
+            if (major < 0 || major > 15 || minor < 0 || minor > 15) {
+                throw new IllegalArgumentException("invalid LLCP version");
+            }
+            this.versionMajor = major;
+            this.versionMinor = minor;
+            return this;
+        }
+
+        /**
+         * @param miu maximum information unit in bytes, {@link #DEFAULT_MIU}
+         * to {@link #MAX_MIU}, larger ones would need PN53x chaining
+         */
+        public Builder miu(int miu) {
+            if (miu < DEFAULT_MIU || miu > MAX_MIU) {
+                throw new IllegalArgumentException("MIU must be " + DEFAULT_MIU + " to " + MAX_MIU);
+            }
+            this.miu = miu;
+            return this;
+        }
+
+        /**
+         * @param wks well-known service list bit mask, -1 to leave it out
+         */
+        public Builder wellKnownServices(int wks) {
+            this.wks = (wks < 0) ? -1 : wks & 0xffff;
+            return this;
+        }
+
+        /**
+         * @param millis link timeout, rounded down to 10 ms, up to 2550 ms
+         */
+        public Builder linkTimeout(int millis) {
+            if (millis < 0 || millis > 2550) {
+                throw new IllegalArgumentException("LTO must be 0 to 2550 ms");
+            }
+            this.lto = millis / 10;
+            return this;
+        }
+
+        /**
+         * @param opt link service class option byte, -1 to leave it out
+         */
+        public Builder option(int opt) {
+            this.opt = (opt < 0) ? -1 : opt & 0xff;
+            return this;
+        }
+
+        public LlcpParameters build() {
+            return new LlcpParameters(this);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * LlcpPdu - Flyweight view of an LLCP PDU
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Flyweight view of an LLCP PDU, <code>DSAP(6) PTYPE(4) SSAP(6)</code>
+ * followed by the sequence byte of I, RR and RNR PDUs and the information
+ * field. The fields are read in place from the array the PDU was received
+ * in, the information field is handed out as an offset and a length.
+ */
+public class LlcpPdu {
+
+    public static final int SYMM = 0x00;
+    public static final int PAX = 0x01;
+    public static final int AGF = 0x02;
+    public static final int UI = 0x03;
+    public static final int CONNECT = 0x04;
+    public static final int DISC = 0x05;
+    public static final int CC = 0x06;
+    public static final int DM = 0x07;
+    public static final int FRMR = 0x08;
+    public static final int SNL = 0x09;
+    public static final int I = 0x0c;
+    public static final int RR = 0x0d;
+    public static final int RNR = 0x0e;
+
+    /** SAP of the SNEP default server */
+    public static final int SNEP_SAP = 0x04;
+
+    private static final String[] NAMES = {
+        "SYMM", "PAX", "AGF", "UI", "CONNECT", "DISC", "CC", "DM",
+        "FRMR", "SNL", "reserved", "reserved", "I", "RR", "RNR", "reserved"
+    };
+
+    private byte[] buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Point this view at a PDU
+     *
+     * @param buffer array holding the PDU
+     * @param offset start of the LLCP header
+     * @param length length of the PDU
+     * @return true if the PDU has a complete header
+     */
+    public boolean wrap(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return isValid();
+    }
+
+    /**
+     * Point this view at the PDU carried in the data of an InDataExchange
+     * response
+     *
+     * @param response the response
+     * @return true if the PDU has a complete header
+     */
+    public boolean wrap(Pn53xResponse response) {
+        return wrap(response.getBuffer(), response.getDataOffset(), response.getDataLength());
+    }
+
+    /**
+     * @return true if the header, and the sequence byte where there is one,
+     *         are complete
+     */
+    public boolean isValid() {
+        if (length < 2) {
+            return false;
+        }
+        return !hasSequence(getType()) || length >= 3;
+    }
+
+    public int getDsap() {
+        return (length >= 2) ? (buffer[offset] & 0xff) >> 2 : -1;
+    }
+
+    /**
+     * @return PTYPE, -1 if there is no header
+     */
+    public int getType() {
+        return (length >= 2) ? type(buffer, offset) : -1;
+    }
+
+    public int getSsap() {
+        return (length >= 2) ? buffer[offset + 1] & 0x3f : -1;
+    }
+
+    public boolean isType(int type) {
+        return getType() == type;
+    }
+
+    /**
+     * @return the sequence byte of an I, RR or RNR PDU, -1 for others
+     */
+    public int getSequence() {
+        return (isValid() && hasSequence(getType())) ? buffer[offset + 2] & 0xff : -1;
+    }
+
+    /**
+     * @return N(S) of an I PDU
+     */
+    public int getNs() {
+        return getSequence() >> 4;
+    }
+
+    /**
+     * @return N(R) of an I, RR or RNR PDU
+     */
+    public int getNr() {
+        return getSequence() & 0x0f;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return Math.max(0, length);
+    }
+
+    /**
+     * @return offset in the buffer of the information field, after the
+     *         sequence byte if there is one
+     */
+    public int getInformationOffset() {
+        return offset + ((hasSequence(getType())) ? 3 : 2);
+    }
+
+    /**
+     * @return length of the information field, 0 if the PDU is not valid
+     */
+    public int getInformationLength() {
+        return isValid() ? offset + length - getInformationOffset() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return (length < 2) ? "none" : name(getType()) + " " + getSsap() + "->" + getDsap();
+    }
+
+    /**
+     * Read PTYPE from a PDU without wrapping it
+     *
+     * @param pdu array holding the PDU
+     * @param offset start of the LLCP header, two bytes must follow
+     * @return PTYPE
+     */
+    public static int type(byte[] pdu, int offset) {
+        return ((pdu[offset] & 0x03) << 2) | ((pdu[offset + 1] & 0xff) >> 6);
+    }
+
+    /**
+     * @return true for I, RR and RNR, whose header is followed by N(S) N(R)
+     */
+    public static boolean hasSequence(int type) {
+        return type >= I && type <= RNR;
+    }
+
+    /**
+     * @return name of a PTYPE as in the LLCP specification
+     */
+    public static String name(int type) {
+        return NAMES[type & 0x0f];
+    }
+}
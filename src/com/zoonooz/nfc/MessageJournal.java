@@ -0,0 +1,402 @@
+/*
+ * MessageJournal - Append-only journal of received NDEF messages
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Durable record of every received message. Readers only put the message in
+ * a queue, a writer thread appends it to the current segment file and calls
+ * fsync once per commit interval for everything written since the last
+ * one, whichever reader it came from. A segment is closed and a new one
+ * started when it would grow beyond the segment size. All numbers are big
+ * endian:
+ *
+ * <pre>
+ * segment = "NFCJ" version(1) record*
+ * record  = length(4) crc(4) time(8) readerLength(2) reader message
+ * </pre>
+ *
+ * length counts the bytes after the CRC, crc is the CRC-32 of those bytes,
+ * time is in ms since the epoch when the message was complete and reader is
+ * the UTF-8 name of the terminal. Segments are named
+ * <code>journal-00000001.nfcj</code> and so on, every start of a journal
+ * begins a new one, so a record torn by a crash is always the last one of
+ * its segment and {@link #read(File, JournalListener)} stops there.
+ */
+public class MessageJournal {
+
+    public static final byte[] MAGIC = {'N', 'F', 'C', 'J'};
+    public static final int VERSION = 1;
+    public static final long DEFAULT_COMMIT_INTERVAL = 200;
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".nfcj";
+    // length, crc, time, reader length
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static class Entry {
+
+        final String reader;
+        final NdefMessage message;
+        final long time;
+
+        Entry(String reader, NdefMessage message, long time) {
+            this.reader = reader;
+            this.message = message;
+            this.time = time;
+        }
+    }
+
+    private final File directory;
+    private final long commitInterval;
+    private final long segmentSize;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH + 0xffff);
+    private final CRC32 crc = new CRC32();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong segments = new AtomicLong();
+    private FileChannel channel;
+    private int segment;
+    private long written = 0;
+    private volatile boolean running = true;
+
+    /**
+     * Journal into <code>directory</code> with the default commit interval
+     * and segment size
+     *
+     * @param directory directory of the segment files, created if missing
+     * @throws IOException if the first segment can not be created
+     */
+    public MessageJournal(File directory) throws IOException {
+        this(directory, DEFAULT_COMMIT_INTERVAL, DEFAULT_SEGMENT_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param directory directory of the segment files, created if missing
+     * @param commitInterval longest time in ms a written message waits for
+     * fsync, 0 to sync after every batch
+     * @param segmentSize size in bytes after which a new segment is started
+     * @param capacity messages waiting for the writer before new ones are
+     * dropped
+     * @throws IOException if the first segment can not be created
+     */
+    public MessageJournal(File directory, long commitInterval, long segmentSize, int capacity)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.commitInterval = commitInterval;
+        this.segmentSize = segmentSize;
+        this.queue = new ArrayBlockingQueue<Entry>(capacity);
+        this.segment = lastSegment(directory);
+        openSegment();
+        writer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                write();
+            }
+        }, "nfc-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a complete message for the journal. Returns at once, the
+     * message is durable after the next commit.
+     *
+     * @param reader name of the terminal the message came from
+     * @param message the complete message, must not change afterwards
+     * @return false if the message was dropped because the journal is full
+     * or closed
+     */
+    public boolean append(String reader, NdefMessage message) {
+        if (!running || !queue.offer(new Entry(reader, message, System.currentTimeMillis()))) {
+            dropped.incrementAndGet();
+            System.out.println("[Error] Journal full, message from " + reader + " not recorded");
+            return false;
+        }
+        appended.incrementAndGet();
+        return true;
+    }
+
+    private void write() {
+        List<Entry> batch = new ArrayList<Entry>();
+        long uncommitted = 0;
+        long firstWrite = 0;
+        try {
+            while (running || !queue.isEmpty()) {
+                // wait no longer than the oldest written message may wait for fsync
+                long wait = (uncommitted == 0) ? 100
+                        : commitInterval - (System.nanoTime() - firstWrite) / 1000000;
+                Entry entry = null;
+                if (wait > 0) {
+                    try {
+                        entry = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ex) {
+                        running = false;
+                    }
+                }
+                if (entry != null) {
+                    batch.add(entry);
+                    queue.drainTo(batch);
+                    if (uncommitted == 0) {
+                        firstWrite = System.nanoTime();
+                    }
+                    for (Entry e : batch) {
+                        writeRecord(e);
+                    }
+                    uncommitted += batch.size();
+                    batch.clear();
+                }
+                if (uncommitted > 0
+                        && (System.nanoTime() - firstWrite) / 1000000 >= commitInterval) {
+                    commit(uncommitted);
+                    uncommitted = 0;
+                }
+            }
+            if (uncommitted > 0) {
+                commit(uncommitted);
+            }
+        } catch (IOException ex) {
+            running = false;
+            System.out.println("[Error] Journal stopped: " + ex.getMessage());
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // nothing more to write
+            }
+        }
+    }
+
+    private void writeRecord(Entry entry) throws IOException {
+        ByteBuffer bytes = entry.message.getBytes();
+        byte[] reader = entry.reader.getBytes(UTF_8);
+        int readerLength = Math.min(reader.length, 0xffff);
+        int length = 8 + 2 + readerLength + bytes.remaining();
+        if (written > MAGIC.length + 1 && written + 8 + length > segmentSize) {
+            channel.force(false);
+            syncs.incrementAndGet();
+            channel.close();
+            openSegment();
+        }
+
+        header.clear();
+        header.putInt(length).putInt(0).putLong(entry.time).putShort((short) readerLength);
+        header.put(reader, 0, readerLength);
+        header.flip();
+        crc.reset();
+        crc.update(header.array(), 8, header.limit() - 8);
+        crc.update(bytes.duplicate());
+        header.putInt(4, (int) crc.getValue());
+
+        writeFully(header);
+        writeFully(bytes);
+        written += 8 + length;
+    }
+
+    private void commit(long messages) throws IOException {
+        channel.force(false);
+        syncs.incrementAndGet();
+        committed.addAndGet(messages);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment++;
+        File file = new File(directory, segmentName(segment));
+        channel = new FileOutputStream(file, true).getChannel();
+        ByteBuffer start = ByteBuffer.allocate(MAGIC.length + 1);
+        start.put(MAGIC).put((byte) VERSION).flip();
+        writeFully(start);
+        written = start.limit();
+        segments.incrementAndGet();
+    }
+
+    private static String segmentName(int segment) {
+        return String.format("%s%08d%s", PREFIX, segment, SUFFIX);
+    }
+
+    private static int lastSegment(File directory) {
+        int last = 0;
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    try {
+                        last = Math.max(last, Integer.parseInt(
+                                name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                    } catch (NumberFormatException ex) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Write and commit the queued messages and stop the writer
+     *
+     * @param timeout ms to wait for the writer
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close(long timeout) throws InterruptedException {
+        // no interrupt, it would close the channel in the middle of a write
+        running = false;
+        writer.join(timeout);
+    }
+
+    /**
+     * @return messages accepted by {@link #append(String, NdefMessage)}
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * @return messages written and synced to disk
+     */
+    public long getCommitted() {
+        return committed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of fsync calls, at most one per commit interval
+     * besides segment rollovers
+     */
+    public long getSyncs() {
+        return syncs.get();
+    }
+
+    /**
+     * @return segments started by this journal
+     */
+    public long getSegments() {
+        return segments.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return getAppended() + " appended, " + getCommitted() + " committed with "
+                + getSyncs() + " syncs in " + getSegments() + " segments, "
+                + getDropped() + " dropped";
+    }
+
+    /**
+     * Read back the records of one segment. Reading stops at the first
+     * record that is incomplete or fails its CRC, which after a crash is the
+     * torn last record.
+     *
+     * @param file a segment file
+     * @param listener receives every valid message with its reader name and
+     * time
+     * @return number of valid records
+     * @throws IOException if the file can not be read or is not a segment
+     */
+    public static long read(File file, JournalListener listener) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            if (bytes.remaining() < MAGIC.length + 1) {
+                throw new IOException(file + " is not a journal segment");
+            }
+            bytes.get(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException(file + " is not a journal segment");
+                }
+            }
+            if ((bytes.get() & 0xff) != VERSION) {
+                throw new IOException(file + " has an unknown journal version");
+            }
+
+            CRC32 check = new CRC32();
+            long records = 0;
+            while (bytes.remaining() >= HEADER_LENGTH) {
+                int length = bytes.getInt();
+                int sum = bytes.getInt();
+                if (length < 8 + 2 || length > bytes.remaining()) {
+                    break;
+                }
+                ByteBuffer record = bytes.slice();
+                record.limit(length);
+                check.reset();
+                check.update(record.duplicate());
+                if ((int) check.getValue() != sum) {
+                    break;
+                }
+                long time = record.getLong();
+                byte[] reader = new byte[record.getShort() & 0xffff];
+                if (reader.length > record.remaining()) {
+                    break;
+                }
+                record.get(reader);
+                try {
+                    listener.onRecord(new String(reader, UTF_8), time, NdefMessage.wrap(record));
+                } catch (NdefException ex) {
+                    System.out.println("[Error] Journal record " + records + ": " + ex.getMessage());
+                }
+                records++;
+                bytes.position(bytes.position() + length);
+            }
+            return records;
+        } finally {
+            in.close();
+        }
+    }
+}
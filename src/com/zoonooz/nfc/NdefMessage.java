@@ -18,41 +18,105 @@
  */
 package com.zoonooz.nfc;
 
-import ds.nfcip.NFCIPUtils;
-
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  *
  * @author amornchaikanokpullwad
  */
-public class NdefMessage {
-
-    private int MB; 
-    private int ME;
-    private int CF;
-    private int SR;
-    private int IL;
-    private int TNF;
-    private int TYPE_LENGTH;
-    private int PAYLOAD_LENGTH;
-    private byte[] TYPE;
-    private byte[] ID;
-    private byte ID_LENGTH = 0;
-    private byte[] PAYLOAD;
-    private byte[] bytedata = {};
+public class NdefMessage implements Iterable<NdefRecord> {
+
+    /**
+     * Largest SNEP message accepted by default. Bigger sizes announced in the
+     * SNEP header are rejected before anything is allocated.
+     */
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    private ByteBuffer buffer;
+    private int recordCount = 0;
+    private byte[] payload;
+    private int position = 0;
     private int length;
+    private boolean duplicate = false;
+
+    public NdefMessage(int length) throws NdefException {
+        this(length, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a message with a reassembly buffer of exactly <code>length</code>
+     * bytes, the size announced in the SNEP header
+     * 
+     * @param length total size of the NDEF message
+     * @param maxSize largest size to accept
+     * @throws NdefException if the size is negative or larger than maxSize
+     */
+    public NdefMessage(int length, int maxSize) throws NdefException {
+        this(length, maxSize, PayloadSink.HEAP);
+    }
 
-    public NdefMessage(int length) {
+    /**
+     * Create a message whose bytes are stored where <code>sink</code>
+     * decides, on the heap or in a mapped file
+     * 
+     * @param length total size of the NDEF message
+     * @param maxSize largest size to accept
+     * @param sink allocates the reassembly buffer
+     * @throws NdefException if the size is invalid or the buffer can not be
+     * allocated
+     */
+    public NdefMessage(int length, int maxSize, PayloadSink sink) throws NdefException {
+        if (length <= 0 || length > maxSize) {
+            throw new NdefException("Invalid NDEF message size (" + length + " bytes)");
+        }
         this.length = length;
+        this.buffer = sink.allocate(length);
+    }
+
+    private NdefMessage(ByteBuffer bytes) throws NdefException {
+        this.length = bytes.remaining();
+        this.buffer = bytes.slice();
+        this.position = length;
+        if (length == 0) {
+            throw new NdefException("Empty NDEF message");
+        }
+        setNdefMessageFromByte();
+    }
+
+    /**
+     * View complete message bytes as a message without copying them, e.g.
+     * the payload of a Smart Poster record
+     *
+     * @param bytes the remaining bytes are the message
+     * @return the message, its records read from bytes
+     * @throws NdefException if the bytes are not a valid NDEF message
+     */
+    public static NdefMessage wrap(ByteBuffer bytes) throws NdefException {
+        return new NdefMessage(bytes);
     }
 
-    
     public boolean appendByte(byte[] data) throws NdefException {
-        if (bytedata.length < length) {
-            
-            bytedata = NFCIPUtils.appendToByteArray(bytedata, data);
+        return appendByte(data, 0, data.length);
+    }
+
+    /**
+     * Copy a fragment into the reassembly buffer
+     * 
+     * @param data array holding the fragment
+     * @param offset start of the fragment in data
+     * @param count number of bytes in the fragment
+     * @return true when the whole message has been received
+     * @throws NdefException if the fragment overflows the message size
+     */
+    public boolean appendByte(byte[] data, int offset, int count) throws NdefException {
+        if (position < length && count <= length - position) {
 
-            if (bytedata.length == length) {
+            buffer.put(data, offset, count);
+            position += count;
+
+            if (position == length) {
                 setNdefMessageFromByte();
                 return true;
             }
@@ -63,55 +127,147 @@ public class NdefMessage {
 
     }
 
-    //init byte to message format
-    private void setNdefMessageFromByte() {
-        int indexCurrent = 0;
-        int headerByte = bytedata[0];               //hex to decimal
-        String header = Integer.toBinaryString(headerByte); 
-        header = header.substring(24);
-
-        MB = Integer.parseInt(header.charAt(0) + "");
-        ME = Integer.parseInt(header.charAt(1) + "");
-        CF = Integer.parseInt(header.charAt(2) + "");
-        SR = Integer.parseInt(header.charAt(3) + "");
-        IL = Integer.parseInt(header.charAt(4) + "");
-        TNF = Integer.parseInt(header.substring(5, 8));
-        TYPE_LENGTH = (int) bytedata[1];
+    //walk every record once so that iteration later can not fail
+    private void setNdefMessageFromByte() throws NdefException {
+        NdefRecord record = new NdefRecord();
+        int index = 0;
+        int count = 0;
+        recordCount = 0;
 
-        if (SR == 1) { //Short Record
-            PAYLOAD_LENGTH = (bytedata[2] & 0xff);
-            indexCurrent = 2;
-        } else {
-            PAYLOAD_LENGTH = (((bytedata[2] & 0xff) << 24) | ((bytedata[3] & 0xff) << 16) | (bytedata[4] & 0xff) << 8) | (bytedata[5] & 0xff);
-            indexCurrent = 5;
+        while (true) {
+            if (index >= length) {
+                throw new NdefException("Last NDEF record without ME flag");
+            }
+            index = record.wrap(buffer, index, length);
+            if (index < 0) {
+                throw new NdefException("Malformed NDEF record " + count);
+            }
+            if (count == 0 && !record.isMessageBegin()) {
+                throw new NdefException("First NDEF record without MB flag");
+            }
+            if (count > 0 && record.isMessageBegin()) {
+                throw new NdefException("MB flag on NDEF record " + count);
+            }
+            count++;
+            if (record.isMessageEnd()) {
+                break;
+            }
         }
-
-        if (IL == 1) { //ID length present
-            indexCurrent++;
-            ID_LENGTH = bytedata[indexCurrent];
+        if (index < length) {
+            throw new NdefException((length - index) + " bytes after the last NDEF record");
         }
-        
-        if (TYPE_LENGTH != 0) {
-            indexCurrent++;
-            TYPE = NFCIPUtils.subByteArray(bytedata, indexCurrent, TYPE_LENGTH);
-            indexCurrent += (TYPE_LENGTH - 1);
+        recordCount = count;
+    }
+
+    /**
+     * @return number of records in the message, 0 until it is complete
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Get a record by position. Each call returns a new view, use
+     * {@link #iterator()} to walk the records without allocating.
+     *
+     * @param index record index
+     * @return view of the record
+     */
+    public NdefRecord getRecord(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("record " + index);
         }
-        
-        if (ID_LENGTH != 0){
-            indexCurrent++;
-            ID = NFCIPUtils.subByteArray(bytedata, indexCurrent, ID_LENGTH);
-            indexCurrent += (ID_LENGTH - 1);
+        Iterator<NdefRecord> it = iterator();
+        for (int i = 0; i < index; i++) {
+            it.next();
         }
-        indexCurrent++;
+        return it.next().copy();
+    }
+
+    /**
+     * Iterate over the records of a complete message. The iterator hands out
+     * the same {@link NdefRecord} instance on every call to next(), use
+     * {@link NdefRecord#copy()} to keep one.
+     */
+    @Override
+    public Iterator<NdefRecord> iterator() {
+        return new Iterator<NdefRecord>() {
+
+            private final NdefRecord record = new NdefRecord();
+            private int index = 0;
+            private int remaining = recordCount;
 
-        PAYLOAD = NFCIPUtils.subByteArray(bytedata, indexCurrent, PAYLOAD_LENGTH);
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public NdefRecord next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                index = record.wrap(buffer, index, length);
+                remaining--;
+                return record;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
-    
+
+    /**
+     * @return copy of the payload of the first record
+     */
     public byte[] getPayload() {
-        return PAYLOAD;
+        if (payload == null && recordCount > 0) {
+            ByteBuffer first = iterator().next().getPayload();
+            payload = new byte[first.remaining()];
+            first.get(payload);
+        }
+        return payload;
     }
     
     public int getSize () {
         return length;
     }
+
+    /**
+     * @return number of bytes received so far
+     */
+    public int getReceived() {
+        return position;
+    }
+
+    /**
+     * @return read-only view of the received message bytes, backed by the
+     * mapped file for large messages
+     */
+    public ByteBuffer getBytes() {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(position).position(0);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return true if a {@link DeduplicatingListener} saw the same content
+     * shortly before
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    /**
+     * @return true if the message is stored in a mapped file
+     */
+    public boolean isMapped() {
+        return buffer.isDirect();
+    }
 }
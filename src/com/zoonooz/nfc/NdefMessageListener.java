@@ -0,0 +1,32 @@
+/*
+ * NdefMessageListener - Receiver of complete NDEF messages
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Gets every NDEF message received from a phone. When one listener is shared
+ * by several readers it is called from several threads at once.
+ */
+public interface NdefMessageListener {
+
+    /**
+     * @param reader name of the terminal the message came from
+     * @param message the complete message
+     */
+    void onNdefMessage(String reader, NdefMessage message);
+}
@@ -0,0 +1,220 @@
+/*
+ * NdefRecord - View of one record inside an NDEF message
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view of a single NDEF record. The record does not copy anything,
+ * TYPE, ID and PAYLOAD are read from the buffer of the message it belongs to.
+ */
+public class NdefRecord {
+
+    public static final int TNF_EMPTY = 0x00;
+    public static final int TNF_WELL_KNOWN = 0x01;
+    public static final int TNF_MIME_MEDIA = 0x02;
+    public static final int TNF_ABSOLUTE_URI = 0x03;
+    public static final int TNF_EXTERNAL_TYPE = 0x04;
+    public static final int TNF_UNKNOWN = 0x05;
+    public static final int TNF_UNCHANGED = 0x06;
+    public static final int TNF_RESERVED = 0x07;
+
+    private static final int FLAG_MB = 0x80;
+    private static final int FLAG_ME = 0x40;
+    private static final int FLAG_CF = 0x20;
+    private static final int FLAG_SR = 0x10;
+    private static final int FLAG_IL = 0x08;
+    private static final int MASK_TNF = 0x07;
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int header;
+    private int typeOffset;
+    private int typeLength;
+    private int idOffset;
+    private int idLength;
+    private int payloadOffset;
+    private int payloadLength;
+
+    /**
+     * Point this view at the record starting at <code>offset</code>
+     *
+     * @param buffer buffer holding the message
+     * @param offset start of the record header
+     * @param limit end of the message in buffer
+     * @return offset of the byte following the record, or -1 if the record
+     *         is malformed or does not fit before limit
+     */
+    int wrap(ByteBuffer buffer, int offset, int limit) {
+        int index = offset;
+        if (limit - index < 3) {
+            return -1;
+        }
+        int h = buffer.get(index++) & 0xff;
+        int tl = buffer.get(index++) & 0xff;
+        int pl;
+
+        if ((h & FLAG_SR) != 0) { //Short Record
+            pl = buffer.get(index++) & 0xff;
+        } else {
+            if (limit - index < 4) {
+                return -1;
+            }
+            pl = buffer.getInt(index);
+            index += 4;
+            if (pl < 0) {
+                return -1;
+            }
+        }
+
+        int il = 0;
+        if ((h & FLAG_IL) != 0) { //ID length present
+            if (limit - index < 1) {
+                return -1;
+            }
+            il = buffer.get(index++) & 0xff;
+        }
+
+        if ((long) tl + il + pl > limit - index) {
+            return -1;
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.header = h;
+        this.typeOffset = index;
+        this.typeLength = tl;
+        this.idOffset = index + tl;
+        this.idLength = il;
+        this.payloadOffset = idOffset + il;
+        this.payloadLength = pl;
+
+        return payloadOffset + pl;
+    }
+
+    public boolean isMessageBegin() {
+        return (header & FLAG_MB) != 0;
+    }
+
+    public boolean isMessageEnd() {
+        return (header & FLAG_ME) != 0;
+    }
+
+    public boolean isChunked() {
+        return (header & FLAG_CF) != 0;
+    }
+
+    public boolean isShortRecord() {
+        return (header & FLAG_SR) != 0;
+    }
+
+    public boolean hasId() {
+        return (header & FLAG_IL) != 0;
+    }
+
+    public int getTnf() {
+        return header & MASK_TNF;
+    }
+
+    /**
+     * @return offset of the record header in the message
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getTypeLength() {
+        return typeLength;
+    }
+
+    public int getIdLength() {
+        return idLength;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    /**
+     * @return read-only view of the TYPE field
+     */
+    public ByteBuffer getType() {
+        return slice(typeOffset, typeLength);
+    }
+
+    /**
+     * @return read-only view of the ID field
+     */
+    public ByteBuffer getId() {
+        return slice(idOffset, idLength);
+    }
+
+    /**
+     * @return read-only view of the PAYLOAD field
+     */
+    public ByteBuffer getPayload() {
+        return slice(payloadOffset, payloadLength);
+    }
+
+    /**
+     * Compare the TYPE field without copying it
+     *
+     * @param type type bytes to compare with
+     * @return true if TYPE equals type
+     */
+    public boolean typeEquals(byte[] type) {
+        if (type.length != typeLength) {
+            return false;
+        }
+        for (int i = 0; i < typeLength; i++) {
+            if (buffer.get(typeOffset + i) != type[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a new view of the same record, for keeping it after the
+     *         iterator that produced this one has moved on
+     */
+    public NdefRecord copy() {
+        NdefRecord record = new NdefRecord();
+        record.buffer = buffer;
+        record.offset = offset;
+        record.header = header;
+        record.typeOffset = typeOffset;
+        record.typeLength = typeLength;
+        record.idOffset = idOffset;
+        record.idLength = idLength;
+        record.payloadOffset = payloadOffset;
+        record.payloadLength = payloadLength;
+        return record;
+    }
+
+    private ByteBuffer slice(int start, int count) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(start + count).position(start);
+        return view.slice().asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * PayloadSink - Storage for the bytes of a received NDEF message
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Decides where an {@link NdefMessage} keeps its bytes. Messages smaller than
+ * the threshold go to a heap array, bigger ones to a memory-mapped temporary
+ * file of exactly the size from the SNEP header, so the heap use of a beam
+ * does not depend on its size. The file is deleted right after mapping where
+ * the platform allows it, the mapping itself is released when the message is
+ * garbage collected.
+ */
+public class PayloadSink {
+
+    /** Keeps every message on the heap */
+    public static final PayloadSink HEAP = new PayloadSink(Integer.MAX_VALUE, null);
+
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    private final int threshold;
+    private final File directory;
+
+    /**
+     * Map messages of {@link #DEFAULT_THRESHOLD} bytes and more to files in
+     * the default temporary directory
+     */
+    public PayloadSink() {
+        this(DEFAULT_THRESHOLD, null);
+    }
+
+    /**
+     * @param threshold smallest message size written to a file
+     * @param directory where to create the files, null for the default
+     * temporary directory
+     */
+    public PayloadSink(int threshold, File directory) {
+        this.threshold = threshold;
+        this.directory = directory;
+    }
+
+    /**
+     * Allocate the storage for one message
+     *
+     * @param size size of the message from the SNEP header
+     * @return writable buffer of exactly size bytes, position 0
+     * @throws NdefException if the file can not be created or mapped
+     */
+    public ByteBuffer allocate(int size) throws NdefException {
+        if (size < threshold) {
+            return ByteBuffer.allocate(size);
+        }
+        File file = null;
+        RandomAccessFile raf = null;
+        try {
+            file = File.createTempFile("ndef", ".bin", directory);
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(size);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ex) {
+            throw new NdefException("Can't map NDEF message (" + ex.getMessage() + ")");
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                    // the mapping stays valid
+                }
+            }
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * @param size size of a message
+     * @return true if a message of this size is written to a file
+     */
+    public boolean isMapped(int size) {
+        return size >= threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Pn53xResponse - Flyweight view of a PN53x response
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Flyweight view of the answer to a PN53x command,
+ * <code>D5 xx+1 status data SW1 SW2</code>, read in place from the response
+ * array of an {@link ApduFrame}. The same instance is pointed at every
+ * response, nothing is copied.
+ */
+public class Pn53xResponse {
+
+    /** Offset of the data following D5, the response code and the status */
+    public static final int DATA_OFFSET = 3;
+
+    /** Status of a successful command */
+    public static final int STATUS_OK = 0x00;
+    /** Status of a command to a target that was released or left the field */
+    public static final int STATUS_TARGET_RELEASED = 0x29;
+
+    private byte[] buffer;
+    private int length;
+
+    /**
+     * Point this view at a response
+     *
+     * @param buffer array holding the response
+     * @param length length of the response including SW1 SW2
+     * @return true if the response has at least the status byte
+     */
+    public boolean wrap(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+        return hasStatus();
+    }
+
+    /**
+     * @return true if the response carries a PN53x status byte
+     */
+    public boolean hasStatus() {
+        return length >= DATA_OFFSET + 2 && buffer[0] == (byte) 0xd5;
+    }
+
+    /**
+     * @return the response code, the command code plus one, -1 if none
+     */
+    public int getCode() {
+        return (length >= 4) ? buffer[1] & 0xff : -1;
+    }
+
+    /**
+     * @return the status byte with the MI and NAD bits, -1 if none
+     */
+    public int getStatus() {
+        return hasStatus() ? buffer[2] & 0xff : -1;
+    }
+
+    /**
+     * @return the error code of the status byte, 0 on success
+     */
+    public int getError() {
+        return hasStatus() ? buffer[2] & 0x3f : -1;
+    }
+
+    public boolean isSuccess() {
+        return getError() == STATUS_OK;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getDataOffset() {
+        return DATA_OFFSET;
+    }
+
+    /**
+     * @return number of data bytes between the status and SW1 SW2, 0 if
+     *         there is no status
+     */
+    public int getDataLength() {
+        return hasStatus() ? length - DATA_OFFSET - 2 : 0;
+    }
+
+    public int getSW1() {
+        return (length >= 2) ? buffer[length - 2] & 0xff : -1;
+    }
+
+    public int getSW2() {
+        return (length >= 2) ? buffer[length - 1] & 0xff : -1;
+    }
+}
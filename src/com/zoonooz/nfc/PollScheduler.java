@@ -0,0 +1,46 @@
+/*
+ * PollScheduler - Timing of CONNECT polls while waiting for a beam
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Decides how long {@link Connection} waits between two polls for an Android
+ * connection. Calls are made from the thread driving the reader.
+ */
+public interface PollScheduler {
+
+    /**
+     * A target has just been detected, start a new wait for a beam
+     */
+    void reset();
+
+    /**
+     * @return milliseconds to wait before the next poll
+     */
+    long nextDelay();
+
+    /**
+     * The last poll did not get a connection
+     */
+    void onIdlePoll();
+
+    /**
+     * The last poll got a connection from the phone
+     */
+    void onConnect();
+}
@@ -0,0 +1,228 @@
+/*
+ * ReaderManager - Receive beams on every connected reader
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactory;
+
+/**
+ * Runs one {@link Connection} on its own thread for every terminal, so each
+ * reader has its own channel and polling loop. Readers plugged in or removed
+ * while running are picked up by rescanning the terminal list. All messages go
+ * to one shared listener, which must be thread safe. The
+ * {@link ReaderMetrics} of every session are registered with the platform
+ * MBean server while the session runs. Wrap a slow listener in a
+ * {@link DispatchingListener} so the reader threads go back to polling
+ * right after each beam.
+ */
+public class ReaderManager {
+
+    public static final long DEFAULT_SCAN_INTERVAL = 1000;
+
+    private final CardTerminals terminals;
+    private final NdefMessageListener listener;
+    private final Map<String, ReaderSession> sessions = new HashMap<String, ReaderSession>();
+    private long scanInterval = DEFAULT_SCAN_INTERVAL;
+    private MessageJournal journal;
+    private volatile boolean running = false;
+    private Thread scanner;
+
+    public ReaderManager(NdefMessageListener listener) {
+        this(TerminalFactory.getDefault().terminals(), listener);
+    }
+
+    public ReaderManager(CardTerminals terminals, NdefMessageListener listener) {
+        this.terminals = terminals;
+        this.listener = listener;
+    }
+
+    /**
+     * @param scanInterval ms between two scans for added or removed readers
+     */
+    public void setScanInterval(long scanInterval) {
+        this.scanInterval = scanInterval;
+    }
+
+    /**
+     * Record the messages of all readers in one journal, so one fsync
+     * covers the beams of every reader. Applies to sessions started after
+     * the call.
+     * 
+     * @param journal the journal, null for none
+     */
+    public void setJournal(MessageJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Start a session on every reader found now and watch for hot-plug
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scan();
+        scanner = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                while (running) {
+                    try {
+                        Thread.sleep(scanInterval);
+                    } catch (InterruptedException ex) {
+                        break;
+                    }
+                    scan();
+                }
+            }
+        }, "nfc-reader-scan");
+        scanner.setDaemon(true);
+        scanner.start();
+    }
+
+    /**
+     * Stop scanning and stop every session
+     */
+    public synchronized void stop() {
+        running = false;
+        if (scanner != null) {
+            scanner.interrupt();
+            scanner = null;
+        }
+        for (ReaderSession session : sessions.values()) {
+            session.stop();
+        }
+        sessions.clear();
+    }
+
+    /**
+     * @return names of the readers that currently have a session
+     */
+    public synchronized Set<String> getReaders() {
+        return new HashSet<String>(sessions.keySet());
+    }
+
+    private synchronized void scan() {
+        if (!running) {
+            return;
+        }
+        List<CardTerminal> list;
+        try {
+            list = terminals.list();
+        } catch (CardException ex) {
+            System.out.println("[Error] Can't list terminals: " + ex.getMessage());
+            return;
+        }
+
+        Set<String> present = new HashSet<String>();
+        for (CardTerminal terminal : list) {
+            String name = terminal.getName();
+            present.add(name);
+            ReaderSession session = sessions.get(name);
+            if (session == null || !session.isAlive()) {
+                System.out.println("Reader added: " + name);
+                if (session != null) {
+                    session.stop();
+                }
+                session = new ReaderSession(terminal);
+                sessions.put(name, session);
+                session.start();
+            }
+        }
+
+        Iterator<Map.Entry<String, ReaderSession>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, ReaderSession> entry = it.next();
+            if (!present.contains(entry.getKey())) {
+                System.out.println("Reader removed: " + entry.getKey());
+                entry.getValue().stop();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Thread receiving beams from one reader
+     */
+    private class ReaderSession implements Runnable {
+
+        private final Connection connection;
+        private final Thread thread;
+
+        private final ObjectName metricsName;
+
+        ReaderSession(CardTerminal terminal) {
+            connection = new Connection(terminal);
+            connection.setNdefMessageListener(listener);
+            connection.setJournal(journal);
+            metricsName = ReaderMetrics.objectName(terminal.getName());
+            thread = new Thread(this, "nfc-reader-" + terminal.getName());
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (!server.isRegistered(metricsName)) {
+                    server.registerMBean(connection.getMetrics(), metricsName);
+                }
+            } catch (JMException ex) {
+                System.out.println("[Error] Can't register metrics: " + ex.getMessage());
+            }
+            thread.start();
+        }
+
+        void stop() {
+            connection.stop();
+            thread.interrupt();
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (server.isRegistered(metricsName)) {
+                    server.unregisterMBean(metricsName);
+                }
+            } catch (JMException ex) {
+                // already gone
+            }
+        }
+
+        boolean isAlive() {
+            return thread.isAlive();
+        }
+
+        @Override
+        public void run() {
+            // returns when stopped or when the reader fails, the next scan
+            // starts a new session if the reader is still there
+            connection.start();
+        }
+    }
+}
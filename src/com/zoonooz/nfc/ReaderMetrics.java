@@ -0,0 +1,243 @@
+/*
+ * ReaderMetrics - APDU and beam metrics of one reader
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Collects the numbers {@link Connection} records while it talks to a
+ * reader. The record methods only do atomic adds on preallocated counters,
+ * no locks and no allocation, and may be read from any thread through
+ * {@link ReaderMetricsMXBean}.
+ */
+public class ReaderMetrics implements ReaderMetricsMXBean {
+
+    private static final int ERROR_SLOTS = 32;
+    private static final int PN53X_ERROR = 0x10000;
+
+    private final String reader;
+    private final Histogram inDataExchange = new Histogram();
+    private final Histogram inAtr = new Histogram();
+    private final Histogram inRelease = new Histogram();
+    private final Histogram timeToFirstFragment = new Histogram();
+    private final Histogram fragments = new Histogram();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong transferNanos = new AtomicLong();
+    // open addressing table, key 0 is a free slot, last slot takes overflow
+    private final AtomicIntegerArray errorKeys = new AtomicIntegerArray(ERROR_SLOTS);
+    private final AtomicLongArray errorCounts = new AtomicLongArray(ERROR_SLOTS + 1);
+
+    public ReaderMetrics(String reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param reader terminal name
+     * @return the name the metrics of this reader are registered under
+     */
+    public static ObjectName objectName(String reader) {
+        try {
+            return new ObjectName("com.zoonooz.nfc:type=ReaderMetrics,name="
+                    + ObjectName.quote(reader));
+        } catch (MalformedObjectNameException ex) {
+            throw new IllegalArgumentException(ex.getMessage());
+        }
+    }
+
+    /**
+     * @param instruction PN53x command code
+     * @param nanos time from transmit to response
+     */
+    public void recordApdu(byte instruction, long nanos) {
+        long micros = nanos / 1000;
+        switch (instruction) {
+            case 0x40:
+                inDataExchange.record(micros);
+                break;
+            case 0x50:
+                inAtr.record(micros);
+                break;
+            case 0x52:
+                inRelease.record(micros);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param nanos time from the CONNECT of the phone to the first fragment
+     */
+    public void recordFirstFragment(long nanos) {
+        timeToFirstFragment.record(nanos / 1000);
+    }
+
+    /**
+     * @param fragmentCount fragments of the message
+     * @param size NDEF bytes
+     * @param nanos time from the first fragment to the end of the transfer
+     */
+    public void recordMessage(int fragmentCount, int size, long nanos) {
+        fragments.record(fragmentCount);
+        bytes.addAndGet(size);
+        transferNanos.addAndGet(nanos);
+    }
+
+    public void recordAbort() {
+        aborted.incrementAndGet();
+    }
+
+    /**
+     * @param sw1 SW1 of the failed response
+     * @param sw2 SW2 of the failed response
+     */
+    public void recordStatusWord(int sw1, int sw2) {
+        recordError(((sw1 & 0xff) << 8) | (sw2 & 0xff));
+    }
+
+    /**
+     * @param status error code from the status byte of the PN53x response
+     */
+    public void recordPn53xError(int status) {
+        recordError(PN53X_ERROR | (status & 0xff));
+    }
+
+    private void recordError(int code) {
+        int key = code + 1;
+        int slot = (code * 31) & (ERROR_SLOTS - 1);
+        for (int i = 0; i < ERROR_SLOTS; i++) {
+            int current = errorKeys.get(slot);
+            if (current == 0) {
+                // claim the slot, or see who claimed it first
+                errorKeys.compareAndSet(slot, 0, key);
+                current = errorKeys.get(slot);
+            }
+            if (current == key) {
+                errorCounts.incrementAndGet(slot);
+                return;
+            }
+            slot = (slot + 1) & (ERROR_SLOTS - 1);
+        }
+        errorCounts.incrementAndGet(ERROR_SLOTS);
+    }
+
+    @Override
+    public String getReader() {
+        return reader;
+    }
+
+    @Override
+    public HistogramSnapshot getInDataExchangeLatency() {
+        return inDataExchange.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getInAtrLatency() {
+        return inAtr.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getInReleaseLatency() {
+        return inRelease.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getTimeToFirstFragment() {
+        return timeToFirstFragment.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getFragmentsPerMessage() {
+        return fragments.snapshot();
+    }
+
+    @Override
+    public long getMessages() {
+        return fragments.snapshot().getCount();
+    }
+
+    @Override
+    public long getAbortedMessages() {
+        return aborted.get();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        long nanos = transferNanos.get();
+        return (nanos == 0) ? 0 : bytes.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> errors = new TreeMap<String, Long>();
+        for (int i = 0; i < ERROR_SLOTS; i++) {
+            int key = errorKeys.get(i);
+            if (key != 0) {
+                int code = key - 1;
+                String name = ((code & PN53X_ERROR) != 0)
+                        ? String.format("PN53x %02x", code & 0xff)
+                        : String.format("SW %04x", code);
+                errors.put(name, errorCounts.get(i));
+            }
+        }
+        if (errorCounts.get(ERROR_SLOTS) > 0) {
+            errors.put("other", errorCounts.get(ERROR_SLOTS));
+        }
+        return errors;
+    }
+
+    /**
+     * Clear the counters, records running at the same time may be lost
+     */
+    @Override
+    public void reset() {
+        inDataExchange.reset();
+        inAtr.reset();
+        inRelease.reset();
+        timeToFirstFragment.reset();
+        fragments.reset();
+        aborted.set(0);
+        bytes.set(0);
+        transferNanos.set(0);
+        for (int i = 0; i < ERROR_SLOTS; i++) {
+            errorKeys.set(i, 0);
+            errorCounts.set(i, 0);
+        }
+        errorCounts.set(ERROR_SLOTS, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "InDataExchange " + inDataExchange.snapshot() + " us, "
+                + fragments.snapshot().getCount() + " messages, "
+                + String.format("%.0f bytes/s", getBytesPerSecond());
+    }
+}
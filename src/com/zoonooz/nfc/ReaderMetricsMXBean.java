@@ -0,0 +1,70 @@
+/*
+ * ReaderMetricsMXBean - JMX view of the metrics of one reader
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+import java.util.Map;
+
+/**
+ * Attributes of {@link ReaderMetrics} as seen in JConsole or VisualVM.
+ * Latencies are in microseconds.
+ */
+public interface ReaderMetricsMXBean {
+
+    String getReader();
+
+    /**
+     * @return round trip of InDataExchange (0x40)
+     */
+    HistogramSnapshot getInDataExchangeLatency();
+
+    /**
+     * @return round trip of InATR (0x50)
+     */
+    HistogramSnapshot getInAtrLatency();
+
+    /**
+     * @return round trip of InRelease (0x52)
+     */
+    HistogramSnapshot getInReleaseLatency();
+
+    /**
+     * @return time from the CONNECT of the phone to the first SNEP fragment
+     */
+    HistogramSnapshot getTimeToFirstFragment();
+
+    HistogramSnapshot getFragmentsPerMessage();
+
+    long getMessages();
+
+    long getAbortedMessages();
+
+    long getBytes();
+
+    /**
+     * @return NDEF bytes received per second of transfer time
+     */
+    double getBytesPerSecond();
+
+    /**
+     * @return error count by status word, PN53x status errors as "PN53x xx"
+     */
+    Map<String, Long> getErrors();
+
+    void reset();
+}
@@ -0,0 +1,125 @@
+/*
+ * SnepHeader - Flyweight view of a SNEP message header
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Flyweight view of a SNEP header, <code>version request/response
+ * length(4)</code>, read in place from the information field of the I PDU
+ * that carries the first fragment of a message.
+ */
+public class SnepHeader {
+
+    public static final int LENGTH = 6;
+    /** Version 1.0, the only one defined */
+    public static final int VERSION = 0x10;
+
+    public static final int CONTINUE = 0x00;
+    public static final int GET = 0x01;
+    public static final int PUT = 0x02;
+    public static final int REJECT = 0x7f;
+
+    public static final int RESPONSE_CONTINUE = 0x80;
+    public static final int RESPONSE_SUCCESS = 0x81;
+    public static final int RESPONSE_NOT_FOUND = 0xc0;
+    public static final int RESPONSE_EXCESS_DATA = 0xc1;
+    public static final int RESPONSE_BAD_REQUEST = 0xc2;
+    public static final int RESPONSE_NOT_IMPLEMENTED = 0xe0;
+    public static final int RESPONSE_UNSUPPORTED_VERSION = 0xe1;
+    public static final int RESPONSE_REJECT = 0xff;
+
+    private byte[] buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Point this view at a SNEP message
+     *
+     * @param buffer array holding the message
+     * @param offset start of the SNEP header
+     * @param length bytes of the message in this fragment
+     * @return true if the header is complete
+     */
+    public boolean wrap(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return isValid();
+    }
+
+    /**
+     * Point this view at the SNEP message in the information field of a PDU
+     *
+     * @param pdu an I PDU
+     * @return true if the header is complete
+     */
+    public boolean wrap(LlcpPdu pdu) {
+        return wrap(pdu.getBuffer(), pdu.getInformationOffset(), pdu.getInformationLength());
+    }
+
+    public boolean isValid() {
+        return length >= LENGTH;
+    }
+
+    /**
+     * @return major version in the high nibble, minor in the low one
+     */
+    public int getVersion() {
+        return isValid() ? buffer[offset] & 0xff : -1;
+    }
+
+    /**
+     * @return true if the major version is one this side understands
+     */
+    public boolean isSupportedVersion() {
+        return (getVersion() & 0xf0) == (VERSION & 0xf0);
+    }
+
+    /**
+     * @return the request or response code
+     */
+    public int getField() {
+        return isValid() ? buffer[offset + 1] & 0xff : -1;
+    }
+
+    /**
+     * @return length of the whole information field as announced, it may
+     *         span several fragments, -1 if the header is not complete
+     */
+    public int getMessageLength() {
+        if (!isValid()) {
+            return -1;
+        }
+        return ((buffer[offset + 2] & 0xff) << 24) | ((buffer[offset + 3] & 0xff) << 16)
+                | ((buffer[offset + 4] & 0xff) << 8) | (buffer[offset + 5] & 0xff);
+    }
+
+    /**
+     * @return offset in the buffer of the information bytes in this fragment
+     */
+    public int getInformationOffset() {
+        return offset + LENGTH;
+    }
+
+    /**
+     * @return information bytes in this fragment
+     */
+    public int getInformationLength() {
+        return isValid() ? length - LENGTH : 0;
+    }
+}
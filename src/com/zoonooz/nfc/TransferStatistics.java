@@ -0,0 +1,70 @@
+/*
+ * TransferStatistics - Numbers of one received beam
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc;
+
+/**
+ * Fragments, reader round trips, size and duration of one SNEP transfer,
+ * counted from the first PUT fragment to the release of the target
+ */
+public class TransferStatistics {
+
+    private final int fragments;
+    private final int roundTrips;
+    private final int bytes;
+    private final long nanos;
+
+    public TransferStatistics(int fragments, int roundTrips, int bytes, long nanos) {
+        this.fragments = fragments;
+        this.roundTrips = roundTrips;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public int getFragments() {
+        return fragments;
+    }
+
+    /**
+     * @return number of APDUs exchanged with the reader
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @return size of the NDEF message
+     */
+    public int getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getBytesPerSecond() {
+        return (nanos <= 0) ? 0 : bytes * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d bytes, %d fragments, %d round trips, %.1f ms, %.0f bytes/s",
+                bytes, fragments, roundTrips, nanos / 1e6, getBytesPerSecond());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * LlcpPduEvent - JFR event for one LLCP exchange
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.jfr;
+
+import com.zoonooz.nfc.LlcpPdu;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One InDataExchange: the LLCP PDU sent to the phone and the one it
+ * answered with
+ */
+@Name("com.zoonooz.nfc.LlcpPdu")
+@Label("LLCP PDU Exchange")
+@Category({"NFC", "LLCP"})
+@Description("LLCP PDU sent with InDataExchange and the PDU received back")
+public class LlcpPduEvent extends Event {
+
+    @Label("Reader")
+    public String reader;
+
+    @Label("Sent PDU")
+    public String sent;
+
+    @Label("Sent N(S) N(R)")
+    @Description("Sequence byte of a sent I, RR or RNR PDU, -1 for others")
+    public int sentSequence;
+
+    @Label("Sent Size")
+    @DataAmount
+    public int sentSize;
+
+    @Label("Received PDU")
+    public String received;
+
+    @Label("Received N(S) N(R)")
+    @Description("Sequence byte of a received I, RR or RNR PDU, -1 for others")
+    public int receivedSequence;
+
+    @Label("Received Size")
+    @DataAmount
+    public int receivedSize;
+
+    /**
+     * Fill in one side of the exchange from the raw PDU
+     *
+     * @param pdu array holding the PDU
+     * @param offset start of the LLCP header
+     * @param length length of the PDU
+     * @param sent true for the PDU sent to the phone
+     */
+    public void setPdu(byte[] pdu, int offset, int length, boolean sent) {
+        String type = "none";
+        int sequence = -1;
+        if (length >= 2) {
+            int ptype = LlcpPdu.type(pdu, offset);
+            type = LlcpPdu.name(ptype);
+            if (LlcpPdu.hasSequence(ptype) && length >= 3) {
+                sequence = pdu[offset + 2] & 0xff;
+            }
+        }
+        if (sent) {
+            this.sent = type;
+            this.sentSequence = sequence;
+            this.sentSize = Math.max(0, length);
+        } else {
+            this.received = type;
+            this.receivedSequence = sequence;
+            this.receivedSize = Math.max(0, length);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * NdefMessageEvent - JFR event for a received NDEF message
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A whole beam, from the first SNEP PUT to the last fragment
+ */
+@Name("com.zoonooz.nfc.NdefMessage")
+@Label("NDEF Message")
+@Category({"NFC", "SNEP"})
+@Description("SNEP transfer of one NDEF message")
+public class NdefMessageEvent extends Event {
+
+    @Label("Reader")
+    public String reader;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    @Label("Fragments")
+    public int fragments;
+
+    @Label("Round Trips")
+    public int roundTrips;
+
+    @Label("Complete")
+    public boolean complete;
+}
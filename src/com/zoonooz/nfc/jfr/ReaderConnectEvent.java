@@ -0,0 +1,41 @@
+/*
+ * ReaderConnectEvent - JFR event for opening the reader
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Opening the card connection to the reader after a target was found
+ */
+@Name("com.zoonooz.nfc.ReaderConnect")
+@Label("Reader Connect")
+@Category({"NFC", "Reader"})
+@Description("Card connection to the reader opened")
+public class ReaderConnectEvent extends Event {
+
+    @Label("Reader")
+    public String reader;
+
+    @Label("Protocol")
+    public String protocol;
+}
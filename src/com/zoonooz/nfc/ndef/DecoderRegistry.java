@@ -0,0 +1,175 @@
+/*
+ * DecoderRegistry - Typed record decoders by TNF and type
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefRecord;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the {@link RecordDecoder} for a record by its TNF and TYPE. Lookup
+ * compares the TYPE field in place and allocates nothing, registering copies
+ * the table so lookups from several reader threads need no lock.
+ * <p>
+ * {@link #DEFAULT} knows Text, URI and Smart Poster well known records,
+ * absolute URI records and any MIME media record.
+ */
+public class DecoderRegistry {
+
+    public static final DecoderRegistry DEFAULT = new DecoderRegistry();
+
+    static {
+        DEFAULT.register(NdefRecord.TNF_WELL_KNOWN, TextRecord.TYPE, new RecordDecoder() {
+
+            @Override
+            public TypedRecord decode(NdefRecord record) {
+                return new TextRecord(record);
+            }
+        });
+        RecordDecoder uri = new RecordDecoder() {
+
+            @Override
+            public TypedRecord decode(NdefRecord record) {
+                return new UriRecord(record);
+            }
+        };
+        DEFAULT.register(NdefRecord.TNF_WELL_KNOWN, UriRecord.TYPE, uri);
+        DEFAULT.register(NdefRecord.TNF_ABSOLUTE_URI, uri);
+        DEFAULT.register(NdefRecord.TNF_WELL_KNOWN, SmartPosterRecord.TYPE, new RecordDecoder() {
+
+            @Override
+            public TypedRecord decode(NdefRecord record) {
+                return new SmartPosterRecord(record);
+            }
+        });
+        DEFAULT.register(NdefRecord.TNF_MIME_MEDIA, new RecordDecoder() {
+
+            @Override
+            public TypedRecord decode(NdefRecord record) {
+                return new MimeRecord(record);
+            }
+        });
+    }
+
+    private static class Entry {
+
+        final int tnf;
+        final byte[] type;
+        final RecordDecoder decoder;
+
+        Entry(int tnf, byte[] type, RecordDecoder decoder) {
+            this.tnf = tnf;
+            this.type = type;
+            this.decoder = decoder;
+        }
+    }
+
+    private volatile Entry[] entries = new Entry[0];
+
+    /**
+     * Register a decoder for every type of a TNF that has no decoder of its
+     * own, e.g. all MIME media records
+     *
+     * @param tnf TNF of the records
+     * @param decoder makes the typed view
+     */
+    public void register(int tnf, RecordDecoder decoder) {
+        register(tnf, (byte[]) null, decoder);
+    }
+
+    /**
+     * Register a decoder, replacing the one for the same TNF and type
+     *
+     * @param tnf TNF of the records
+     * @param type TYPE of the records, compared byte by byte
+     * @param decoder makes the typed view
+     */
+    public synchronized void register(int tnf, byte[] type, RecordDecoder decoder) {
+        List<Entry> list = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (entry.tnf != tnf || !sameType(entry.type, type)) {
+                list.add(entry);
+            }
+        }
+        Entry added = new Entry(tnf, (type == null) ? null : type.clone(), decoder);
+        // typed entries first so they win over the catch-all of their TNF
+        if (type == null) {
+            list.add(added);
+        } else {
+            list.add(0, added);
+        }
+        entries = list.toArray(new Entry[list.size()]);
+    }
+
+    /**
+     * @param tnf TNF of the records
+     * @param type TYPE of the records, e.g. "T" or "application/vnd.foo"
+     * @param decoder makes the typed view
+     */
+    public void register(int tnf, String type, RecordDecoder decoder) {
+        register(tnf, type.getBytes(TypedRecord.US_ASCII), decoder);
+    }
+
+    /**
+     * @param record the record
+     * @return decoder for the record, null if none is registered
+     */
+    public RecordDecoder find(NdefRecord record) {
+        int tnf = record.getTnf();
+        for (Entry entry : entries) {
+            if (entry.tnf == tnf && (entry.type == null || record.typeEquals(entry.type))) {
+                return entry.decoder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param record the record, copied if it has to be kept
+     * @return typed view of the record, null if no decoder is registered
+     */
+    public TypedRecord decode(NdefRecord record) {
+        RecordDecoder decoder = find(record);
+        return (decoder == null) ? null : decoder.decode(record.copy());
+    }
+
+    /**
+     * @param message a complete message
+     * @return a typed view for every record with a decoder, in message order
+     */
+    public List<TypedRecord> decode(NdefMessage message) {
+        List<TypedRecord> records = new ArrayList<TypedRecord>(message.getRecordCount());
+        for (NdefRecord record : message) {
+            TypedRecord typed = decode(record);
+            if (typed != null) {
+                records.add(typed);
+            }
+        }
+        return records;
+    }
+
+    private static boolean sameType(byte[] a, byte[] b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Arrays.equals(a, b);
+    }
+}
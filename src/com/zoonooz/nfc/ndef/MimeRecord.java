@@ -0,0 +1,92 @@
+/*
+ * MimeRecord - MIME media record
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefRecord;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Record of TNF MIME media, the TYPE field is the media type and the payload
+ * the content.
+ */
+public class MimeRecord extends TypedRecord {
+
+    private String mimeType;
+
+    public MimeRecord(NdefRecord record) {
+        super(record);
+    }
+
+    /**
+     * @return media type in lower case, with its parameters
+     */
+    public String getMimeType() {
+        if (mimeType == null) {
+            mimeType = decode(getRecord().getType(), US_ASCII).toLowerCase(Locale.ENGLISH);
+        }
+        return mimeType;
+    }
+
+    /**
+     * @return read-only view of the content
+     */
+    public ByteBuffer getData() {
+        return getRecord().getPayload();
+    }
+
+    /**
+     * @return true for text/* and the usual text based application types
+     */
+    public boolean isText() {
+        String type = getMimeType();
+        return type.startsWith("text/") || type.startsWith("application/json")
+                || type.startsWith("application/xml");
+    }
+
+    /**
+     * Decode the content with the charset parameter of the media type, UTF-8
+     * if there is none or it is not supported
+     *
+     * @return the content as text
+     */
+    public String getText() {
+        Charset charset = UTF_8;
+        String type = getMimeType();
+        int index = type.indexOf("charset=");
+        if (index >= 0) {
+            String name = type.substring(index + 8).split(";")[0].trim().replace("\"", "");
+            try {
+                charset = Charset.forName(name);
+            } catch (IllegalArgumentException ex) {
+                // keep UTF-8
+            }
+        }
+        return decode(getRecord().getPayload(), charset);
+    }
+
+    @Override
+    public String toString() {
+        if (isText()) {
+            return "MIME " + getMimeType() + ": " + getText();
+        }
+        return "MIME " + getMimeType() + " (" + getRecord().getPayloadLength() + " bytes)";
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * RecordDecoder - Factory of typed record views
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefRecord;
+
+/**
+ * Makes the typed view of a record, registered in a {@link DecoderRegistry}
+ * for a TNF and type. Creating the view should not decode anything yet.
+ */
+public interface RecordDecoder {
+
+    /**
+     * @param record the record, owned by the returned view
+     * @return view of the record
+     */
+    TypedRecord decode(NdefRecord record);
+}
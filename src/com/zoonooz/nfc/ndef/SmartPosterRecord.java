@@ -0,0 +1,150 @@
+/*
+ * SmartPosterRecord - NFC Forum Smart Poster record
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefException;
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefRecord;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * RTD Smart Poster record, its payload is an NDEF message with one URI
+ * record and optional title, action, size and type records. The nested
+ * message is read in place from the payload when a getter is first called.
+ */
+public class SmartPosterRecord extends TypedRecord {
+
+    public static final byte[] TYPE = {'S', 'p'};
+
+    public static final int ACTION_NONE = -1;
+    public static final int ACTION_DO = 0;
+    public static final int ACTION_SAVE = 1;
+    public static final int ACTION_OPEN = 2;
+
+    private static final byte[] TYPE_ACTION = {'a', 'c', 't'};
+    private static final byte[] TYPE_SIZE = {'s'};
+    private static final byte[] TYPE_MIME = {'t'};
+
+    private boolean parsed;
+    private UriRecord uri;
+    private List<TextRecord> titles;
+    private int action = ACTION_NONE;
+    private long size = -1;
+    private String mimeType;
+
+    public SmartPosterRecord(NdefRecord record) {
+        super(record);
+    }
+
+    /**
+     * @return the URI of the poster
+     * @throws NdefException if the nested message is malformed or has no URI
+     */
+    public String getUri() throws NdefException {
+        parse();
+        if (uri == null) {
+            throw new NdefException("Smart Poster without URI record");
+        }
+        return uri.getUri();
+    }
+
+    /**
+     * @return title records, one per language
+     * @throws NdefException if the nested message is malformed
+     */
+    public List<TextRecord> getTitles() throws NdefException {
+        parse();
+        return titles;
+    }
+
+    /**
+     * @return the first title, null if there is none
+     * @throws NdefException if the nested message is malformed
+     */
+    public String getTitle() throws NdefException {
+        parse();
+        return titles.isEmpty() ? null : titles.get(0).getText();
+    }
+
+    /**
+     * @return one of the ACTION constants
+     * @throws NdefException if the nested message is malformed
+     */
+    public int getAction() throws NdefException {
+        parse();
+        return action;
+    }
+
+    /**
+     * @return size of the referenced content, -1 if not given
+     * @throws NdefException if the nested message is malformed
+     */
+    public long getSize() throws NdefException {
+        parse();
+        return size;
+    }
+
+    /**
+     * @return media type of the referenced content, null if not given
+     * @throws NdefException if the nested message is malformed
+     */
+    public String getMimeType() throws NdefException {
+        parse();
+        return mimeType;
+    }
+
+    private void parse() throws NdefException {
+        if (parsed) {
+            return;
+        }
+        NdefMessage message = NdefMessage.wrap(getRecord().getPayload());
+        List<TextRecord> list = new ArrayList<TextRecord>();
+        for (NdefRecord record : message) {
+            if (record.getTnf() != NdefRecord.TNF_WELL_KNOWN) {
+                continue;
+            }
+            if (record.typeEquals(UriRecord.TYPE) && uri == null) {
+                uri = new UriRecord(record.copy());
+            } else if (record.typeEquals(TextRecord.TYPE)) {
+                list.add(new TextRecord(record.copy()));
+            } else if (record.typeEquals(TYPE_ACTION) && record.getPayloadLength() > 0) {
+                action = record.getPayload().get(0);
+            } else if (record.typeEquals(TYPE_SIZE) && record.getPayloadLength() >= 4) {
+                size = record.getPayload().getInt(0) & 0xffffffffL;
+            } else if (record.typeEquals(TYPE_MIME)) {
+                mimeType = decode(record.getPayload(), UTF_8);
+            }
+        }
+        titles = Collections.unmodifiableList(list);
+        parsed = true;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            String title = getTitle();
+            return "Smart Poster: " + getUri() + ((title == null) ? "" : " (" + title + ")");
+        } catch (NdefException ex) {
+            return "Smart Poster: " + ex.getMessage();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * TextRecord - NFC Forum Text record
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefException;
+import com.zoonooz.nfc.NdefRecord;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * RTD Text record: a status byte with the encoding and the length of the
+ * IANA language code, the language code, then the text in UTF-8 or UTF-16.
+ */
+public class TextRecord extends TypedRecord {
+
+    public static final byte[] TYPE = {'T'};
+
+    private static final int FLAG_UTF16 = 0x80;
+    private static final int MASK_LANGUAGE_LENGTH = 0x3f;
+
+    private String language;
+    private String text;
+
+    public TextRecord(NdefRecord record) {
+        super(record);
+    }
+
+    /**
+     * @return true if the text is UTF-16, false for UTF-8
+     * @throws NdefException if the payload is empty
+     */
+    public boolean isUtf16() throws NdefException {
+        return (status() & FLAG_UTF16) != 0;
+    }
+
+    /**
+     * @return IANA language code, e.g. "en"
+     * @throws NdefException if the payload is too short
+     */
+    public String getLanguage() throws NdefException {
+        if (language == null) {
+            ByteBuffer payload = getRecord().getPayload();
+            int length = languageLength(payload);
+            payload.limit(1 + length).position(1);
+            language = decode(payload, US_ASCII);
+        }
+        return language;
+    }
+
+    /**
+     * @return the text without status byte and language code
+     * @throws NdefException if the payload is too short
+     */
+    public String getText() throws NdefException {
+        if (text == null) {
+            ByteBuffer payload = getRecord().getPayload();
+            int length = languageLength(payload);
+            Charset charset = ((payload.get(0) & FLAG_UTF16) != 0) ? UTF_16 : UTF_8;
+            payload.position(1 + length);
+            text = decode(payload, charset);
+        }
+        return text;
+    }
+
+    private int status() throws NdefException {
+        ByteBuffer payload = getRecord().getPayload();
+        if (!payload.hasRemaining()) {
+            throw new NdefException("Empty Text record");
+        }
+        return payload.get(0) & 0xff;
+    }
+
+    private int languageLength(ByteBuffer payload) throws NdefException {
+        if (!payload.hasRemaining()) {
+            throw new NdefException("Empty Text record");
+        }
+        int length = payload.get(0) & MASK_LANGUAGE_LENGTH;
+        if (1 + length > payload.remaining()) {
+            throw new NdefException("Text record language code too long");
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return "Text (" + getLanguage() + "): " + getText();
+        } catch (NdefException ex) {
+            return "Text: " + ex.getMessage();
+        }
+    }
+}
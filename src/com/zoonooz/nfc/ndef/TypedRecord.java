@@ -0,0 +1,58 @@
+/*
+ * TypedRecord - Base of the decoded record views
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefRecord;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A record seen as a known type. Subclasses read their fields from the
+ * record payload the first time a getter is called and keep the result, so
+ * a record nobody looks at costs nothing to decode.
+ */
+public abstract class TypedRecord {
+
+    protected static final Charset UTF_8 = Charset.forName("UTF-8");
+    protected static final Charset UTF_16 = Charset.forName("UTF-16");
+    protected static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final NdefRecord record;
+
+    /**
+     * @param record the record, kept as it is, pass a copy of an iterator
+     * record
+     */
+    protected TypedRecord(NdefRecord record) {
+        this.record = record;
+    }
+
+    public NdefRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * @param bytes bytes to decode, position and limit are not changed
+     * @param charset charset of the bytes
+     * @return the text
+     */
+    protected static String decode(ByteBuffer bytes, Charset charset) {
+        return charset.decode(bytes.duplicate()).toString();
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * UriRecord - NFC Forum URI record
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.ndef;
+
+import com.zoonooz.nfc.NdefException;
+import com.zoonooz.nfc.NdefRecord;
+import java.nio.ByteBuffer;
+
+/**
+ * RTD URI record, the first payload byte abbreviates a URI prefix. Also
+ * reads absolute URI records, which carry the URI in the TYPE field.
+ */
+public class UriRecord extends TypedRecord {
+
+    public static final byte[] TYPE = {'U'};
+
+    private static final String[] PREFIXES = {
+        "", "http://www.", "https://www.", "http://", "https://", "tel:",
+        "mailto:", "ftp://anonymous:anonymous@", "ftp://ftp.", "ftps://",
+        "sftp://", "smb://", "nfs://", "ftp://", "dav://", "news:",
+        "telnet://", "imap:", "rtsp://", "urn:", "pop:", "sip:", "sips:",
+        "tftp:", "btspp://", "btl2cap://", "btgoep://", "tcpobex://",
+        "irdaobex://", "file://", "urn:epc:id:", "urn:epc:tag:",
+        "urn:epc:pat:", "urn:epc:raw:", "urn:epc:", "urn:nfc:"
+    };
+
+    private String uri;
+
+    public UriRecord(NdefRecord record) {
+        super(record);
+    }
+
+    /**
+     * @return the URI with its prefix expanded
+     * @throws NdefException if the payload is empty
+     */
+    public String getUri() throws NdefException {
+        if (uri == null) {
+            NdefRecord record = getRecord();
+            if (record.getTnf() == NdefRecord.TNF_ABSOLUTE_URI) {
+                uri = decode(record.getType(), UTF_8);
+            } else {
+                ByteBuffer payload = record.getPayload();
+                if (!payload.hasRemaining()) {
+                    throw new NdefException("Empty URI record");
+                }
+                int code = payload.get() & 0xff;
+                String prefix = (code < PREFIXES.length) ? PREFIXES[code] : "";
+                uri = prefix + decode(payload, UTF_8);
+            }
+        }
+        return uri;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return "URI: " + getUri();
+        } catch (NdefException ex) {
+            return "URI: " + ex.getMessage();
+        }
+    }
+}
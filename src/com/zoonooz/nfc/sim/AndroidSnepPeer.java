@@ -0,0 +1,457 @@
+/*
+ * AndroidSnepPeer - Simulated PN53x reader with an Android phone beaming
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import com.zoonooz.nfc.LlcpParameters;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import javax.smartcardio.CardException;
+
+/**
+ * Emulates the PN53x InATR, InDataExchange and InRelease commands of an
+ * ACR122U with an Android phone in the field that pushes NDEF messages over
+ * SNEP, one beam per queued message. The phone behaves like Android ICS: it
+ * answers SYMM until it connects to the SNEP server, waits for SNEP Continue
+ * after the first fragment, honours the receive window sent in the CC PDU
+ * and fragments according to its own fragment size and the MIU of the reader.
+ * <p>
+ * Like a real phone, it needs one exchange after the CC and after the SNEP
+ * Continue before the next fragment is ready, those exchanges are answered
+ * with SYMM or RR. When the reader closes the SNEP connection with DM but
+ * keeps the link, the phone connects again for the next queued message. A
+ * beam the reader refused with a SNEP error response, or closed with DM or
+ * InRelease before SNEP Success, is dropped like Android does, the phone
+ * does not try it again. An InATR while the link is still active, without
+ * InRelease before, is counted as a protocol error and the phone starts the
+ * beam in progress again, so a reader that never closes a beam it gave up
+ * on keeps getting it.
+ * <p>
+ * {@link #failActivations(int)} and {@link #dropActivations(int)} make the
+ * phone leave the field while the reader still reports a card, the reader
+ * then gets PN53x timeout status instead of a CardException.
+ */
+public class AndroidSnepPeer implements ApduResponder {
+
+    private static final byte IN_DATA_EXCHANGE = (byte) 0x40;
+    private static final byte IN_ATR = (byte) 0x50;
+    private static final byte IN_RELEASE = (byte) 0x52;
+
+    private static final int PTYPE_SYMM = 0x00;
+    private static final int PTYPE_DISC = 0x05;
+    private static final int PTYPE_CC = 0x06;
+    private static final int PTYPE_DM = 0x07;
+    private static final int PTYPE_I = 0x0c;
+    private static final int PTYPE_RR = 0x0d;
+
+    private static final int SNEP_SAP = 0x04;
+    private static final int PHONE_SAP = 0x20;
+    private static final int SNEP_CONTINUE = 0x80;
+    private static final int SNEP_SUCCESS = 0x81;
+    // Not Found and all higher response codes
+    private static final int SNEP_ERROR = 0xc0;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_ACTIVATED = 1;
+    private static final int STATE_CONNECTING = 2;
+    private static final int STATE_CONNECTED = 3;
+    private static final int STATE_DONE = 4;
+    private static final int STATE_REFUSED = 5;
+
+    private final Queue<byte[]> messages = new ConcurrentLinkedQueue<byte[]>();
+    private volatile byte[] current;
+    // still in the field after a beam on a kept link, with nothing to send
+    private volatile boolean lingering;
+
+    private int fragmentSize = 128;
+    private int idlePolls = 2;
+    private long latencyNanos = 0;
+
+    private int state = STATE_IDLE;
+    private int polls;
+    private int readerMiu;
+    private int window;
+    private int sendState;
+    private int receiveState;
+    private int acknowledged;
+    private boolean acknowledgeOwed;
+    private boolean continueReceived;
+    private int sentBytes;
+    private int sentFragments;
+    private long exchange;
+    private long dataReadyAt;
+
+    private volatile long beamsCompleted = 0;
+    private volatile long beamsAbandoned = 0;
+    private volatile long beamsRefused = 0;
+    private volatile long protocolErrors = 0;
+    private volatile long exchanges = 0;
+    private volatile int failedActivations = 0;
+    private volatile int droppedActivations = 0;
+
+    /**
+     * @param fragmentSize largest information field the phone puts in one I
+     *        PDU, the MIU of the reader and {@link LlcpParameters#MAX_MIU} may
+     *        make it smaller
+     */
+    public void setFragmentSize(int fragmentSize) {
+        this.fragmentSize = fragmentSize;
+    }
+
+    /**
+     * @param idlePolls polls answered with SYMM before the phone connects
+     */
+    public void setIdlePolls(int idlePolls) {
+        this.idlePolls = idlePolls;
+    }
+
+    /**
+     * @param latencyNanos time added to every APDU, USB plus RF round trip
+     */
+    public void setLatencyNanos(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    /**
+     * Answer the next InATR commands with timeout status, as if the phone
+     * left before it was activated. Later commands are answered normally.
+     *
+     * @param count InATR commands to fail
+     */
+    public void failActivations(int count) {
+        this.failedActivations = count;
+    }
+
+    /**
+     * Answer the next InATR commands but leave the field right after, the
+     * InDataExchange commands that follow get timeout status until the
+     * phone is activated again
+     *
+     * @param count InATR commands to drop
+     */
+    public void dropActivations(int count) {
+        this.droppedActivations = count;
+    }
+
+    /**
+     * Queue an NDEF message for the phone to beam
+     *
+     * @param ndef the NDEF message, sent in a SNEP PUT request
+     */
+    public void addMessage(byte[] ndef) {
+        byte[] snep = new byte[6 + ndef.length];
+        snep[0] = 0x10;
+        snep[1] = 0x02;
+        snep[2] = (byte) (ndef.length >> 24);
+        snep[3] = (byte) (ndef.length >> 16);
+        snep[4] = (byte) (ndef.length >> 8);
+        snep[5] = (byte) ndef.length;
+        System.arraycopy(ndef, 0, snep, 6, ndef.length);
+        messages.add(snep);
+    }
+
+    /**
+     * Queue a complete SNEP request as is, also when it is malformed
+     *
+     * @param snep SNEP header and information
+     */
+    public void addSnepMessage(byte[] snep) {
+        messages.add(snep);
+    }
+
+    public long getBeamsCompleted() {
+        return beamsCompleted;
+    }
+
+    /**
+     * @return beams the reader refused or gave up on after the phone started
+     *         sending, the phone does not send them again
+     */
+    public long getBeamsAbandoned() {
+        return beamsAbandoned;
+    }
+
+    /**
+     * @return beams the reader answered with a SNEP error response, a part
+     *         of {@link #getBeamsAbandoned()}
+     */
+    public long getBeamsRefused() {
+        return beamsRefused;
+    }
+
+    /**
+     * @return InATR commands received while the link was still active
+     */
+    public long getProtocolErrors() {
+        return protocolErrors;
+    }
+
+    public long getExchanges() {
+        return exchanges;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return current != null || lingering || !messages.isEmpty();
+    }
+
+    @Override
+    public int respond(byte[] command, int length, byte[] response) throws CardException {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        exchanges++;
+
+        if (length < 7 || command[0] != (byte) 0xff || command[5] != (byte) 0xd4) {
+            return status(response, 0, 0x63, 0x7f);
+        }
+        if (!isPresent()) {
+            throw new CardException("Card removed");
+        }
+
+        byte instruction = command[6];
+        response[0] = (byte) 0xd5;
+        response[1] = (byte) (instruction + 1);
+        response[2] = 0x00;
+
+        switch (instruction) {
+            case IN_ATR:
+                if (failedActivations > 0) {
+                    failedActivations--;
+                    response[2] = 0x01; // timeout, no target answered
+                    return status(response, 3, 0x90, 0x00);
+                } else if (droppedActivations > 0) {
+                    droppedActivations--;
+                    release();
+                    return status(response, atrResponse(response, 3), 0x90, 0x00);
+                }
+                activate(command, 7, length - 7);
+                return status(response, atrResponse(response, 3), 0x90, 0x00);
+            case IN_DATA_EXCHANGE:
+                if (state == STATE_IDLE) {
+                    response[2] = 0x01; // timeout, no active target
+                    return status(response, 3, 0x90, 0x00);
+                }
+                exchange++;
+                return status(response, pdu(command, 8, length - 8, response, 3), 0x90, 0x00);
+            case IN_RELEASE:
+                release();
+                return status(response, 3, 0x90, 0x00);
+            default:
+                return status(response, 0, 0x63, 0x7f);
+        }
+    }
+
+    private static int status(byte[] response, int offset, int sw1, int sw2) {
+        response[offset] = (byte) sw1;
+        response[offset + 1] = (byte) sw2;
+        return offset + 2;
+    }
+
+    private void activate(byte[] command, int offset, int length) {
+        if (state != STATE_IDLE) {
+            // the reader activates again without releasing the target
+            protocolErrors++;
+        }
+        if (current == null) {
+            current = messages.poll();
+        }
+        readerMiu = 128;
+        // Tg, Next, then magic number and TLVs
+        int index = offset + 5;
+        int end = offset + length;
+        while (index + 1 < end) {
+            int type = command[index] & 0xff;
+            int tlvLength = command[index + 1] & 0xff;
+            if (type == 0x02 && tlvLength == 2 && index + 3 < end) {
+                readerMiu = 128 + (((command[index + 2] & 0x07) << 8) | (command[index + 3] & 0xff));
+            }
+            index += 2 + tlvLength;
+        }
+        state = STATE_ACTIVATED;
+        polls = 0;
+    }
+
+    private int atrResponse(byte[] response, int offset) {
+        byte[] atr = {
+            // NFCID3t, DIDt, BSt, BRt, TO, PPt with general bytes
+            0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a,
+            0x00, 0x00, 0x00, 0x0e, 0x32,
+            // LLCP 1.1, MIU 256, WKS SNEP, LTO 1.5s
+            0x46, 0x66, 0x6d, 0x01, 0x01, 0x11, 0x02, 0x02, 0x00, (byte) 0x80,
+            0x03, 0x02, 0x00, 0x13, 0x04, 0x01, (byte) 0x96};
+        System.arraycopy(atr, 0, response, offset, atr.length);
+        return offset + atr.length;
+    }
+
+    private void release() {
+        if (state == STATE_DONE) {
+            beamsCompleted++;
+            current = null;
+        } else if (state == STATE_CONNECTED || state == STATE_REFUSED) {
+            beamsAbandoned++;
+            current = null;
+        }
+        lingering = false;
+        state = STATE_IDLE;
+    }
+
+    private int pdu(byte[] command, int offset, int length, byte[] response, int out) {
+        if (length < 2) {
+            return symm(response, out);
+        }
+        int ptype = ((command[offset] & 0x03) << 2) | ((command[offset + 1] & 0xff) >> 6);
+
+        switch (state) {
+            case STATE_ACTIVATED:
+                if (current == null || polls++ < idlePolls) {
+                    return symm(response, out);
+                }
+                state = STATE_CONNECTING;
+                response[out] = (byte) ((SNEP_SAP << 2) | 0x01); // CONNECT
+                response[out + 1] = (byte) PHONE_SAP;
+                return out + 2;
+
+            case STATE_CONNECTING:
+                if (ptype == PTYPE_CC) {
+                    connected(command, offset + 2, length - 2);
+                }
+                return symm(response, out);
+
+            default:
+                if (ptype == PTYPE_I && length >= 3) {
+                    information(command, offset + 2, length - 2);
+                } else if (ptype == PTYPE_RR && length >= 3) {
+                    acknowledged = command[offset + 2] & 0x0f;
+                } else if (ptype == PTYPE_DM) {
+                    // reader closed the connection but kept the link up
+                    if (state == STATE_DONE) {
+                        beamsCompleted++;
+                        nextBeam();
+                    } else if (state == STATE_CONNECTED || state == STATE_REFUSED) {
+                        beamsAbandoned++;
+                        nextBeam();
+                    }
+                    return symm(response, out);
+                } else if (ptype == PTYPE_DISC) {
+                    state = STATE_DONE;
+                    response[out] = (byte) ((SNEP_SAP << 2) | 0x01); // DM
+                    response[out + 1] = (byte) (0xc0 | PHONE_SAP);
+                    response[out + 2] = 0x00;
+                    return out + 3;
+                }
+
+                if (canSend()) {
+                    return fragment(response, out);
+                } else if (acknowledgeOwed) {
+                    acknowledgeOwed = false;
+                    response[out] = (byte) ((SNEP_SAP << 2) | (PTYPE_RR >> 2));
+                    response[out + 1] = (byte) (((PTYPE_RR & 0x03) << 6) | PHONE_SAP);
+                    response[out + 2] = (byte) receiveState;
+                    return out + 3;
+                }
+                return symm(response, out);
+        }
+    }
+
+    private void nextBeam() {
+        current = messages.poll();
+        lingering = current == null;
+        state = STATE_ACTIVATED;
+        polls = 0;
+        sentBytes = 0;
+        sentFragments = 0;
+    }
+
+    private static int symm(byte[] response, int out) {
+        response[out] = (byte) PTYPE_SYMM;
+        response[out + 1] = 0x00;
+        return out + 2;
+    }
+
+    private void connected(byte[] params, int offset, int length) {
+        window = 1;
+        int index = offset;
+        int end = offset + length;
+        while (index + 1 < end) {
+            int type = params[index] & 0xff;
+            int tlvLength = params[index + 1] & 0xff;
+            if (type == 0x05 && tlvLength == 1 && index + 2 < end) {
+                window = Math.max(1, params[index + 2] & 0x0f);
+            }
+            index += 2 + tlvLength;
+        }
+        state = STATE_CONNECTED;
+        sendState = 0;
+        receiveState = 0;
+        acknowledged = 0;
+        acknowledgeOwed = false;
+        continueReceived = false;
+        sentBytes = 0;
+        sentFragments = 0;
+        dataReadyAt = exchange + 1;
+    }
+
+    private void information(byte[] command, int offset, int length) {
+        int sequence = command[offset] & 0xff;
+        acknowledged = sequence & 0x0f;
+        if ((sequence >> 4) != receiveState) {
+            return;
+        }
+        receiveState = (receiveState + 1) & 0x0f;
+        acknowledgeOwed = true;
+
+        // SNEP response from the reader
+        if (length >= 3 && command[offset + 1] == 0x10) {
+            int field = command[offset + 2] & 0xff;
+            if (field == SNEP_CONTINUE && !continueReceived) {
+                continueReceived = true;
+                dataReadyAt = exchange + 1;
+            } else if (field == SNEP_SUCCESS) {
+                state = STATE_DONE;
+            } else if (field >= SNEP_ERROR && state == STATE_CONNECTED) {
+                beamsRefused++;
+                state = STATE_REFUSED;
+            }
+        }
+    }
+
+    private boolean canSend() {
+        return state == STATE_CONNECTED
+                && sentBytes < current.length
+                && exchange >= dataReadyAt
+                && (sentFragments == 0 || continueReceived)
+                && ((sendState - acknowledged) & 0x0f) < window;
+    }
+
+    private int fragment(byte[] response, int out) {
+        // without PN53x chaining an I PDU must fit one InDataExchange response
+        int size = Math.min(Math.min(fragmentSize, readerMiu), LlcpParameters.MAX_MIU);
+        size = Math.min(size, current.length - sentBytes);
+        response[out] = (byte) ((SNEP_SAP << 2) | (PTYPE_I >> 2));
+        response[out + 1] = (byte) PHONE_SAP;
+        response[out + 2] = (byte) ((sendState << 4) | receiveState);
+        System.arraycopy(current, sentBytes, response, out + 3, size);
+        sendState = (sendState + 1) & 0x0f;
+        acknowledgeOwed = false;
+        sentBytes += size;
+        sentFragments++;
+        return out + 3 + size;
+    }
+}
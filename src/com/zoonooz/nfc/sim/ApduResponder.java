@@ -0,0 +1,44 @@
+/*
+ * ApduResponder - Answers reader APDUs in a simulated terminal
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import javax.smartcardio.CardException;
+
+/**
+ * What sits behind a {@link SimulatedTerminal}: the reader and whatever is in
+ * its field
+ */
+public interface ApduResponder {
+
+    /**
+     * @return true while a target is in the field
+     */
+    boolean isPresent();
+
+    /**
+     * Answer one APDU
+     *
+     * @param command the APDU
+     * @param length length of the APDU
+     * @param response array to write the answer to, including SW1 SW2
+     * @return length of the answer
+     * @throws CardException if the target left the field
+     */
+    int respond(byte[] command, int length, byte[] response) throws CardException;
+}
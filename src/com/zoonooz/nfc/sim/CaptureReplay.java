@@ -0,0 +1,125 @@
+/*
+ * CaptureReplay - Run the receive path against a capture file
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import com.zoonooz.nfc.AdaptivePollScheduler;
+import com.zoonooz.nfc.Connection;
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefMessageListener;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Feeds a capture through {@link Connection} and prints how fast the
+ * messages in it were received.
+ * <p>
+ * Usage: <code>CaptureReplay capture-file [rounds] [realtime]</code>
+ */
+public class CaptureReplay {
+
+    private final CaptureReplayResponder responder;
+    private final Connection connection;
+    private long messages = 0;
+    private long bytes = 0;
+
+    /**
+     * @param responder the loaded capture
+     * @param realTime true to keep the captured timing, false to replay as
+     * fast as possible
+     */
+    public CaptureReplay(CaptureReplayResponder responder, boolean realTime) {
+        this.responder = responder;
+        responder.setRealTime(realTime);
+        connection = new Connection(new SimulatedTerminal("Capture replay", responder));
+        if (!realTime) {
+            connection.setPollScheduler(new AdaptivePollScheduler(0, 0, 1));
+        }
+        connection.setNdefMessageListener(new NdefMessageListener() {
+
+            @Override
+            public void onNdefMessage(String reader, NdefMessage message) {
+                messages++;
+                bytes += message.getSize();
+            }
+        });
+    }
+
+    /**
+     * Replay the capture once from the start
+     *
+     * @return ns from the first to the last replayed exchange
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long replay() throws InterruptedException {
+        responder.rewind();
+        Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                connection.start();
+            }
+        }, "capture-replay");
+        thread.start();
+        while (responder.isPresent()) {
+            Thread.sleep(1);
+        }
+        connection.stop();
+        thread.join();
+        return responder.getReplayNanos();
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: CaptureReplay capture-file [rounds] [realtime]");
+            return;
+        }
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        boolean realTime = args.length > 2 && Boolean.parseBoolean(args[2]);
+
+        CaptureReplayResponder responder = new CaptureReplayResponder(new File(args[0]));
+        CaptureReplay replay = new CaptureReplay(responder, realTime);
+        long nanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            nanos += replay.replay();
+        }
+
+        System.out.println(String.format("%d exchanges x %d, %d messages, %d bytes in %.1f ms, %.0f bytes/s",
+                responder.getExchanges(), rounds, replay.getMessages(), replay.getBytes(),
+                nanos / 1e6, replay.getBytes() * 1e9 / nanos));
+        System.out.println(String.format("captured in %.1f ms per round",
+                responder.getCapturedNanos() / 1e6));
+        if (responder.getMismatches() > 0) {
+            System.out.println("[Error] " + responder.getMismatches()
+                    + " commands differ from the capture, first at exchange "
+                    + responder.getFirstMismatch());
+        }
+    }
+}
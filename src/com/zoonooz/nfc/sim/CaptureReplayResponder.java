@@ -0,0 +1,203 @@
+/*
+ * CaptureReplayResponder - Answer APDUs from a capture file
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import com.zoonooz.nfc.ApduCapture;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import javax.smartcardio.CardException;
+
+/**
+ * Plays the responses of an {@link ApduCapture} file back in order, one per
+ * command, whatever the command is. {@link com.zoonooz.nfc.Connection} only
+ * reacts to what it receives, so an unchanged receive path sends the
+ * captured commands again; commands that differ are counted as mismatches
+ * and show a change in the protocol handling. The target leaves the field
+ * after the last response.
+ */
+public class CaptureReplayResponder implements ApduResponder {
+
+    private final byte[][] commands;
+    private final byte[][] responses;
+    private final int[] durations;
+    private final long capturedNanos;
+    private boolean realTime = false;
+    private volatile int position = 0;
+    private int mismatches = 0;
+    private int firstMismatch = -1;
+    private long firstExchange;
+    private long lastExchange;
+
+    /**
+     * Load a whole capture file
+     *
+     * @param file capture written by {@link ApduCapture}
+     * @throws IOException if the file can not be read or is not a capture
+     */
+    public CaptureReplayResponder(File file) throws IOException {
+        List<byte[]> commandList = new ArrayList<byte[]>();
+        List<byte[]> responseList = new ArrayList<byte[]>();
+        List<Integer> durationList = new ArrayList<Integer>();
+        long captured = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] magic = new byte[ApduCapture.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, ApduCapture.MAGIC) || in.readUnsignedByte() != ApduCapture.VERSION) {
+                throw new IOException(file + " is not a version " + ApduCapture.VERSION + " APDU capture");
+            }
+            long previousStart = -1;
+            int previousDuration = 0;
+            while (true) {
+                long start;
+                try {
+                    start = in.readLong();
+                } catch (EOFException ex) {
+                    break;
+                }
+                int duration = in.readInt();
+                // start times begin at 0 again where the file was opened again
+                if (previousStart >= 0) {
+                    captured += (start >= previousStart) ? start - previousStart : previousDuration;
+                }
+                previousStart = start;
+                previousDuration = duration;
+                durationList.add(duration);
+                byte[] command = new byte[in.readUnsignedShort()];
+                in.readFully(command);
+                byte[] response = new byte[in.readUnsignedShort()];
+                in.readFully(response);
+                commandList.add(command);
+                responseList.add(response);
+            }
+            captured += previousDuration;
+        } finally {
+            in.close();
+        }
+        capturedNanos = captured * 1000;
+        commands = commandList.toArray(new byte[commandList.size()][]);
+        responses = responseList.toArray(new byte[responseList.size()][]);
+        durations = new int[durationList.size()];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = durationList.get(i);
+        }
+    }
+
+    /**
+     * @param realTime true to answer after the captured round trip time,
+     * false to answer at once
+     */
+    public void setRealTime(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    /**
+     * Start again from the first exchange
+     */
+    public void rewind() {
+        position = 0;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return position < responses.length;
+    }
+
+    @Override
+    public int respond(byte[] command, int length, byte[] response) throws CardException {
+        int index = position;
+        if (index >= responses.length) {
+            throw new CardException("Capture ended");
+        }
+        if (index == 0) {
+            firstExchange = System.nanoTime();
+        }
+        byte[] captured = commands[index];
+        boolean same = captured.length == length;
+        for (int i = 0; same && i < length; i++) {
+            same = captured[i] == command[i];
+        }
+        if (!same) {
+            if (firstMismatch < 0) {
+                firstMismatch = index;
+            }
+            mismatches++;
+        }
+        if (realTime) {
+            LockSupport.parkNanos(durations[index] * 1000L);
+        }
+        byte[] answer = responses[index];
+        System.arraycopy(answer, 0, response, 0, answer.length);
+        lastExchange = System.nanoTime();
+        position = index + 1;
+        return answer.length;
+    }
+
+    /**
+     * @return number of exchanges in the capture
+     */
+    public int getExchanges() {
+        return responses.length;
+    }
+
+    /**
+     * @return ns from the first command to the last response of the
+     * capture, without the time between two openings of the file
+     */
+    public long getCapturedNanos() {
+        return capturedNanos;
+    }
+
+    /**
+     * @return exchanges replayed since the last rewind
+     */
+    public int getReplayed() {
+        return position;
+    }
+
+    /**
+     * @return ns from the first to the last exchange replayed since the last
+     * rewind
+     */
+    public long getReplayNanos() {
+        return lastExchange - firstExchange;
+    }
+
+    /**
+     * @return commands that differed from the captured ones
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return index of the first command that differed, -1 if none did
+     */
+    public int getFirstMismatch() {
+        return firstMismatch;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * SimulatedBeam - Receive beams from a simulated phone
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import com.zoonooz.nfc.ApduCapture;
+import com.zoonooz.nfc.Connection;
+import com.zoonooz.nfc.NdefMessage;
+import com.zoonooz.nfc.NdefMessageListener;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs {@link Connection} against an {@link AndroidSnepPeer} and prints the
+ * receive throughput, no reader or phone needed.
+ * <p>
+ * Usage: <code>SimulatedBeam [beams] [message size] [fragment size] [latency us] [capture file]</code>
+ */
+public class SimulatedBeam {
+
+    /**
+     * Build a single MIME record NDEF message of the given total size
+     *
+     * @param size size of the whole message, the header alone is 27 bytes
+     * @return the message
+     */
+    public static byte[] mimeMessage(int size) {
+        byte[] type = "application/octet-stream".getBytes();
+        boolean shortRecord = size - 3 - type.length <= 255;
+        int header = (shortRecord ? 3 : 6) + type.length;
+        int payload = Math.max(0, size - header);
+        byte[] ndef = new byte[header + payload];
+        ndef[0] = (byte) (0xc2 | (shortRecord ? 0x10 : 0x00)); // MB ME TNF=MIME
+        ndef[1] = (byte) type.length;
+        if (shortRecord) {
+            ndef[2] = (byte) payload;
+        } else {
+            ndef[2] = (byte) (payload >> 24);
+            ndef[3] = (byte) (payload >> 16);
+            ndef[4] = (byte) (payload >> 8);
+            ndef[5] = (byte) payload;
+        }
+        System.arraycopy(type, 0, ndef, header - type.length, type.length);
+        for (int i = header; i < ndef.length; i++) {
+            ndef[i] = (byte) i;
+        }
+        return ndef;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int beams = (args.length > 0) ? Integer.parseInt(args[0]) : 10;
+        int size = (args.length > 1) ? Integer.parseInt(args[1]) : 4096;
+        int fragmentSize = (args.length > 2) ? Integer.parseInt(args[2]) : 128;
+        long latency = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+
+        AndroidSnepPeer peer = new AndroidSnepPeer();
+        peer.setFragmentSize(fragmentSize);
+        peer.setLatencyNanos(latency * 1000);
+        byte[] ndef = mimeMessage(size);
+        for (int i = 0; i < beams; i++) {
+            peer.addMessage(ndef);
+        }
+
+        final Connection connection = new Connection(new SimulatedTerminal("Simulated ACR122U", peer));
+        ApduCapture capture = null;
+        if (args.length > 4) {
+            capture = new ApduCapture(new File(args[4]));
+            connection.setCapture(capture);
+        }
+        connection.setNdefMessageListener(new NdefMessageListener() {
+
+            private int received = 0;
+
+            @Override
+            public void onNdefMessage(String reader, NdefMessage message) {
+                System.out.println("Transfer: " + connection.getLastTransfer());
+                if (++received >= beams) {
+                    connection.stop();
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        connection.start();
+        long nanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%d beams of %d bytes in %.1f ms, %.0f bytes/s, %d APDUs",
+                connection.getBeamCount(), ndef.length, nanos / 1e6,
+                connection.getBeamCount() * ndef.length * 1e9 / nanos, peer.getExchanges()));
+        if (capture != null) {
+            capture.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * SimulatedCard - Card connection of a simulated terminal
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+
+/**
+ * Card returned by {@link SimulatedTerminal#connect(String)}
+ */
+class SimulatedCard extends Card {
+
+    // pseudo ATR of the ACR122U with a target in the field
+    private static final ATR ATR = new ATR(new byte[]{
+        (byte) 0x3b, (byte) 0x80, (byte) 0x80, (byte) 0x01, (byte) 0x01});
+
+    private final SimulatedChannel channel;
+    private boolean connected = true;
+
+    SimulatedCard(ApduResponder responder) {
+        this.channel = new SimulatedChannel(this, responder);
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public ATR getATR() {
+        return ATR;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "T=1";
+    }
+
+    @Override
+    public CardChannel getBasicChannel() {
+        return channel;
+    }
+
+    @Override
+    public CardChannel openLogicalChannel() throws CardException {
+        throw new CardException("Logical channels not supported");
+    }
+
+    @Override
+    public void beginExclusive() throws CardException {
+    }
+
+    @Override
+    public void endExclusive() throws CardException {
+    }
+
+    @Override
+    public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+        throw new CardException("Control commands not supported");
+    }
+
+    @Override
+    public void disconnect(boolean reset) throws CardException {
+        connected = false;
+    }
+}
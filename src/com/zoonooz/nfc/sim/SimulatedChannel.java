@@ -0,0 +1,89 @@
+/*
+ * SimulatedChannel - Basic channel of a simulated terminal
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import java.nio.ByteBuffer;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+/**
+ * Channel passing APDUs to the {@link ApduResponder} of the terminal. Both
+ * transmit methods are supported, the ByteBuffer one does not allocate.
+ */
+class SimulatedChannel extends CardChannel {
+
+    private static final int MAX_APDU = 512;
+
+    private final SimulatedCard card;
+    private final ApduResponder responder;
+    private final byte[] command = new byte[MAX_APDU];
+    private final byte[] response = new byte[MAX_APDU];
+
+    SimulatedChannel(SimulatedCard card, ApduResponder responder) {
+        this.card = card;
+        this.responder = responder;
+    }
+
+    @Override
+    public Card getCard() {
+        return card;
+    }
+
+    @Override
+    public int getChannelNumber() {
+        return 0;
+    }
+
+    @Override
+    public ResponseAPDU transmit(CommandAPDU apdu) throws CardException {
+        byte[] bytes = apdu.getBytes();
+        System.arraycopy(bytes, 0, command, 0, bytes.length);
+        int length = exchange(bytes.length);
+        byte[] answer = new byte[length];
+        System.arraycopy(response, 0, answer, 0, length);
+        return new ResponseAPDU(answer);
+    }
+
+    @Override
+    public int transmit(ByteBuffer apdu, ByteBuffer answer) throws CardException {
+        int length = apdu.remaining();
+        apdu.get(command, 0, length);
+        int answerLength = exchange(length);
+        if (answer.remaining() < answerLength) {
+            throw new IllegalArgumentException("Insufficient space in response buffer");
+        }
+        answer.put(response, 0, answerLength);
+        return answerLength;
+    }
+
+    private int exchange(int length) throws CardException {
+        if (!card.isConnected()) {
+            throw new IllegalStateException("Card has been disconnected");
+        }
+        return responder.respond(command, length, response);
+    }
+
+    @Override
+    public void close() throws CardException {
+        throw new IllegalStateException("Cannot close basic channel");
+    }
+}
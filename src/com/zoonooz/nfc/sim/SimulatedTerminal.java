@@ -0,0 +1,97 @@
+/*
+ * SimulatedTerminal - In-process stand-in for an ACR122U terminal
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses/>.
+ */
+package com.zoonooz.nfc.sim;
+
+import javax.smartcardio.Card;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+
+/**
+ * Terminal whose card and channel hand every APDU to an
+ * {@link ApduResponder}, so that {@link com.zoonooz.nfc.Connection} runs
+ * without a reader
+ */
+public class SimulatedTerminal extends CardTerminal {
+
+    private static final long PRESENCE_POLL = 10;
+
+    private final String name;
+    private final ApduResponder responder;
+
+    public SimulatedTerminal(String name, ApduResponder responder) {
+        this.name = name;
+        this.responder = responder;
+    }
+
+    public ApduResponder getResponder() {
+        return responder;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Card connect(String protocol) throws CardException {
+        if (!responder.isPresent()) {
+            throw new CardException("No card present");
+        }
+        return new SimulatedCard(responder);
+    }
+
+    @Override
+    public boolean isCardPresent() throws CardException {
+        return responder.isPresent();
+    }
+
+    @Override
+    public boolean waitForCardPresent(long timeout) throws CardException {
+        return waitFor(true, timeout);
+    }
+
+    @Override
+    public boolean waitForCardAbsent(long timeout) throws CardException {
+        return waitFor(false, timeout);
+    }
+
+    private boolean waitFor(boolean present, long timeout) throws CardException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        while (responder.isPresent() != present) {
+            if (timeout != 0 && System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(PRESENCE_POLL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CardException("Interrupted");
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatedTerminal: " + name;
+    }
+}
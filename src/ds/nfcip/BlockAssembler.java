@@ -0,0 +1,141 @@
+/*
+ * BlockAssembler - Join received blocks back into data
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package ds.nfcip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Appends the data of received blocks to one buffer, the counterpart of
+ * {@link BlockCursor}. Every byte is copied once, straight from the received
+ * block into the result. The buffer grows by doubling when the expected size
+ * is not known up front, so appending stays linear.
+ */
+public class BlockAssembler {
+
+	private final boolean chainingIndicator;
+	private ByteBuffer buffer;
+	private boolean complete;
+
+	/**
+	 * @param expectedSize
+	 *            the expected size of the data, used as initial capacity
+	 * @param chainingIndicator
+	 *            indicates whether or not chaining byte is present as the first
+	 *            byte of the blocks
+	 */
+	public BlockAssembler(int expectedSize, boolean chainingIndicator) {
+		this.buffer = ByteBuffer.allocate(Math.max(16, expectedSize));
+		this.chainingIndicator = chainingIndicator;
+	}
+
+	/**
+	 * Append one block
+	 *
+	 * @param block
+	 *            array holding the block
+	 * @param offset
+	 *            start of the block in the array
+	 * @param length
+	 *            length of the block including the chaining indicator
+	 * @return whether or not more blocks are expected, always false without
+	 *         chaining indicator
+	 */
+	public boolean append(byte[] block, int offset, int length) {
+		int dataOffset = offset;
+		int dataLength = length;
+		boolean chained = false;
+		if (chainingIndicator && length > 0) {
+			chained = (block[offset] & 0x01) == 0x01;
+			dataOffset++;
+			dataLength--;
+		}
+		ensureCapacity(dataLength);
+		buffer.put(block, dataOffset, dataLength);
+		complete = !chained;
+		return chained;
+	}
+
+	/**
+	 * Append the remaining bytes of a block
+	 *
+	 * @param block
+	 *            the block including the chaining indicator, its position is
+	 *            moved to its limit
+	 * @return whether or not more blocks are expected
+	 */
+	public boolean append(ByteBuffer block) {
+		boolean chained = false;
+		if (chainingIndicator && block.hasRemaining()) {
+			chained = (block.get() & 0x01) == 0x01;
+		}
+		ensureCapacity(block.remaining());
+		buffer.put(block);
+		complete = !chained;
+		return chained;
+	}
+
+	/**
+	 * @return whether or not the last appended block was not chained
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return number of data bytes appended so far
+	 */
+	public int size() {
+		return buffer.position();
+	}
+
+	/**
+	 * @return read-only view of the data appended so far
+	 */
+	public ByteBuffer getData() {
+		ByteBuffer view = buffer.duplicate();
+		view.flip();
+		return view.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the data as an array, without copying when the buffer is
+	 *         exactly full
+	 */
+	public byte[] toByteArray() {
+		if (buffer.position() == buffer.capacity())
+			return buffer.array();
+		byte[] data = new byte[buffer.position()];
+		System.arraycopy(buffer.array(), 0, data, 0, data.length);
+		return data;
+	}
+
+	private void ensureCapacity(int more) {
+		if (buffer.remaining() >= more)
+			return;
+		int capacity = buffer.capacity();
+		while (capacity - buffer.position() < more)
+			capacity *= 2;
+		ByteBuffer larger = ByteBuffer.allocate(capacity);
+		buffer.flip();
+		larger.put(buffer);
+		buffer = larger;
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * BlockCursor - Walk data in blocks without copying it
+ *
+ * Copyright (C) 2026  The Android Beam NFC Reader contributors
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package ds.nfcip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits data into blocks the same way as
+ * {@link NFCIPUtils#dataToBlockVector(byte[], int, boolean, boolean)}, but
+ * only keeps an offset and length per block. The block data is read in place
+ * from the source buffer, the chaining indicator is computed on the fly and
+ * both are only copied when a block is written out with
+ * {@link #writeBlock(ByteBuffer)}.
+ *
+ * <pre>
+ * BlockCursor cursor = new BlockCursor(data, 64, true, true);
+ * while (cursor.next()) {
+ * 	cursor.writeBlock(frame);
+ * }
+ * </pre>
+ */
+public class BlockCursor {
+
+	private final ByteBuffer data;
+	private final int start;
+	private final int end;
+	private final int blockSize;
+	private final boolean chainingIndicator;
+	private final boolean addBlockNumbers;
+
+	private int blockOffset;
+	private int blockDataLength;
+	private int blockIndex = -1;
+	private boolean emptyBlockDone;
+
+	/**
+	 * Create a cursor over the remaining bytes of <code>data</code>
+	 *
+	 * @param data
+	 *            the data to split, its position and limit are not changed
+	 * @param blockSize
+	 *            the size of one block (including the optional chaining
+	 *            indicator)
+	 * @param chainingIndicator
+	 *            whether or not to use a chaining indicator byte in front of
+	 *            every block
+	 * @param addBlockNumbers
+	 *            whether or not to use block numbers in the chaining indicator
+	 *            byte
+	 */
+	public BlockCursor(ByteBuffer data, int blockSize,
+			boolean chainingIndicator, boolean addBlockNumbers) {
+		if (chainingIndicator & blockSize < 2)
+			throw new IllegalArgumentException(
+					"block size should be >= 2 when using the chaining indicator");
+		else if (blockSize < 1)
+			throw new IllegalArgumentException("block size should be >= 1");
+		this.data = data;
+		this.start = data.position();
+		this.end = data.limit();
+		this.blockSize = blockSize;
+		this.chainingIndicator = chainingIndicator;
+		this.addBlockNumbers = addBlockNumbers;
+		this.blockOffset = start;
+	}
+
+	/**
+	 * Move to the next block
+	 *
+	 * @return false if there are no more blocks
+	 */
+	public boolean next() {
+		if (start == end) {
+			/* empty data still gives one (empty) block */
+			if (emptyBlockDone)
+				return false;
+			emptyBlockDone = true;
+			blockIndex = 0;
+			blockDataLength = 0;
+			return true;
+		}
+		int nextOffset = (blockIndex < 0) ? start : blockOffset
+				+ blockDataLength;
+		if (nextOffset >= end)
+			return false;
+		int maxData = chainingIndicator ? blockSize - 1 : blockSize;
+		blockOffset = nextOffset;
+		blockDataLength = Math.min(maxData, end - nextOffset);
+		blockIndex++;
+		return true;
+	}
+
+	/**
+	 * @return whether or not the current block is the last one
+	 */
+	public boolean isLast() {
+		return blockOffset + blockDataLength >= end;
+	}
+
+	/**
+	 * @return the number of the current block, starting at 0
+	 */
+	public int getBlockIndex() {
+		return blockIndex;
+	}
+
+	/**
+	 * @return the chaining indicator byte of the current block: bit 0 set if
+	 *         more blocks follow, bit 1 the block number
+	 */
+	public byte getChainingIndicator() {
+		int indicator = isLast() ? 0x00 : 0x01;
+		if (addBlockNumbers)
+			indicator |= (blockIndex % 2) << 1;
+		return (byte) indicator;
+	}
+
+	/**
+	 * @return offset of the current block data in the source buffer
+	 */
+	public int getDataOffset() {
+		return blockOffset;
+	}
+
+	/**
+	 * @return length of the current block data, without chaining indicator
+	 */
+	public int getDataLength() {
+		return blockDataLength;
+	}
+
+	/**
+	 * @return length of the current block including the chaining indicator
+	 */
+	public int getBlockLength() {
+		return chainingIndicator ? blockDataLength + 1 : blockDataLength;
+	}
+
+	/**
+	 * @return read-only view of the current block data, without chaining
+	 *         indicator
+	 */
+	public ByteBuffer getData() {
+		ByteBuffer view = data.duplicate();
+		view.limit(blockOffset + blockDataLength);
+		view.position(blockOffset);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Write the current block, chaining indicator first, to
+	 * <code>out</code>
+	 *
+	 * @param out
+	 *            the buffer to write to, e.g. an outgoing frame
+	 * @return the number of bytes written
+	 */
+	public int writeBlock(ByteBuffer out) {
+		if (chainingIndicator)
+			out.put(getChainingIndicator());
+		for (int i = blockOffset; i < blockOffset + blockDataLength; i++)
+			out.put(data.get(i));
+		return getBlockLength();
+	}
+
+	/**
+	 * Write the current block, chaining indicator first, to
+	 * <code>out</code>
+	 *
+	 * @param out
+	 *            the array to write to
+	 * @param offset
+	 *            where to start writing in out
+	 * @return the number of bytes written
+	 */
+	public int writeBlock(byte[] out, int offset) {
+		int index = offset;
+		if (chainingIndicator)
+			out[index++] = getChainingIndicator();
+		if (data.hasArray()) {
+			System.arraycopy(data.array(), data.arrayOffset() + blockOffset,
+					out, index, blockDataLength);
+		} else {
+			for (int i = 0; i < blockDataLength; i++)
+				out[index + i] = data.get(blockOffset + i);
+		}
+		return getBlockLength();
+	}
+}
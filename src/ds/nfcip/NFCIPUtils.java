@@ -20,6 +20,7 @@
 
 package ds.nfcip;
 
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 /**
@@ -46,11 +47,11 @@ public class NFCIPUtils {
 			return "[null]";
 		if (a.length == 0)
 			return "[empty]";
-		String result = "";
+		StringBuilder result = new StringBuilder(a.length * 3);
 		for (int i = 0; i < a.length; i++) {
-			result += byteToString(a[i]) + " ";
+			result.append(byteToString(a[i])).append(' ');
 		}
-		return result;
+		return result.toString();
 	}
 
 	/**
@@ -172,6 +173,59 @@ public class NFCIPUtils {
 		}
 	}
 
+	/**
+	 * Remove padding from a data block without copying it
+	 * 
+	 * @param data
+	 *            the block from its position to its limit
+	 * @return read-only view of the unpadded data
+	 */
+	public static ByteBuffer removePadding(ByteBuffer data) {
+		int start = data.position();
+		int skip;
+		if (data.get(start) == 0x00 || data.get(start) == 0x02) {
+			skip = 1;
+		} else {
+			int i = 1;
+			while (data.get(start + i) == 0x00)
+				i++;
+			skip = i + 1;
+		}
+		ByteBuffer view = data.duplicate();
+		view.position(start + skip);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Write a data block with padding to <code>out</code>, the same bytes as
+	 * {@link #addPadding(byte[])} returns
+	 * 
+	 * @param data
+	 *            the block to be padded, from its position to its limit
+	 * @param out
+	 *            the buffer to write the padded block to
+	 * @return number of bytes written
+	 */
+	public static int addPadding(ByteBuffer data, ByteBuffer out) {
+		int dataLength = data.remaining();
+		int paddingLength;
+		if (dataLength >= 23) {
+			out.put((byte) 0x00);
+			paddingLength = 1;
+		} else if (dataLength == 22) {
+			out.put((byte) 0x02);
+			paddingLength = 1;
+		} else {
+			paddingLength = 23 - dataLength;
+			out.put((byte) 0x01);
+			for (int i = 1; i < paddingLength - 1; i++)
+				out.put((byte) 0x00);
+			out.put((byte) 0x01);
+		}
+		out.put(data.duplicate());
+		return paddingLength + dataLength;
+	}
+
 	/**
 	 * Determine whether the received block is the expected block
 	 * 
@@ -220,52 +274,22 @@ public class NFCIPUtils {
 	public static Vector dataToBlockVector(byte[] data, int blockSize,
 			boolean chainingIndicator, boolean addBlockNumbers) {
 		Vector v = new Vector();
-		int dataPointer = 0;
 		int dataLength = (data == null) ? 0 : data.length;
 		if (dataLength == 0 && chainingIndicator) {
-			// v.add(new byte[] { 0x00 });
 			v.addElement(new byte[] { 0x00 });
 			return v;
 		}
 		if (dataLength == 0) {
-			// v.add(new byte[0]);
 			v.addElement(new byte[0]);
 			return v;
 		}
-		if (chainingIndicator & blockSize < 2)
-			throw new IllegalArgumentException(
-					"block size should be >= 2 when using the chaining indicator");
-		else if (blockSize < 1)
-			throw new IllegalArgumentException("block size should be >= 1");
-
-		while (dataLength > 0) {
-			int blkSize, blkDataSize;
-			if (chainingIndicator) {
-				blkSize = (dataLength >= blockSize) ? blockSize
-						: dataLength + 1;
-				blkDataSize = blkSize - 1;
-			} else {
-				blkSize = (dataLength >= blockSize) ? blockSize : dataLength;
-				blkDataSize = blkSize;
-			}
-			byte[] blk = new byte[blkSize];
-			System.arraycopy(data, dataPointer, blk, blkSize - blkDataSize,
-					blkDataSize);
-			dataPointer += blkDataSize;
-			dataLength -= blkDataSize;
-			if (chainingIndicator)
-				blk[0] = 0x01;
-			// v.add(blk);
+		BlockCursor cursor = new BlockCursor(ByteBuffer.wrap(data), blockSize,
+				chainingIndicator, addBlockNumbers);
+		while (cursor.next()) {
+			byte[] blk = new byte[cursor.getBlockLength()];
+			cursor.writeBlock(blk, 0);
 			v.addElement(blk);
 		}
-		if (chainingIndicator) {
-			((byte[]) v.lastElement())[0] = 0x00;
-			if (addBlockNumbers) {
-				for (int i = 0; i < v.size(); i++)
-					((byte[]) v.elementAt(i))[0] = (byte) (((byte[]) v
-							.elementAt(i))[0] | ((i % 2) << 1));
-			}
-		}
 		return v;
 	}
 
@@ -294,12 +318,19 @@ public class NFCIPUtils {
 	public static byte[] blockVectorToData(Vector bv, boolean chainingIndicator) {
 		if (bv == null || bv.size() == 0)
 			throw new IllegalArgumentException("invalid block vector");
-		byte[] data = new byte[0];
+		int size = 0;
+		for (int i = 0; i < bv.size(); i++) {
+			int blockLength = ((byte[]) bv.elementAt(i)).length;
+			size += (chainingIndicator && blockLength > 0) ? blockLength - 1
+					: blockLength;
+		}
+		byte[] data = new byte[size];
+		int dataPointer = 0;
 		for (int i = 0; i < bv.size(); i++) {
 			byte[] block = (byte[]) bv.elementAt(i);
-			if (chainingIndicator)
-				block = NFCIPUtils.subByteArray(block, 1, block.length - 1);
-			data = NFCIPUtils.appendToByteArray(data, block);
+			int skip = (chainingIndicator && block.length > 0) ? 1 : 0;
+			System.arraycopy(block, skip, data, dataPointer, block.length - skip);
+			dataPointer += block.length - skip;
 		}
 		return data;
 	}
@@ -348,6 +379,34 @@ public class NFCIPUtils {
 		return (data[0] & 0x04) == 0x04;
 	}
 
+	/**
+	 * Checks whether or not the block at the position of <code>data</code>
+	 * is chained
+	 * 
+	 * @param data
+	 *            the block to analyze, not moved
+	 * @return whether or not the flag was set
+	 */
+	public static boolean isChained(ByteBuffer data) {
+		if (data == null || !data.hasRemaining())
+			return false;
+		return (data.get(data.position()) & 0x01) == 0x01;
+	}
+
+	/**
+	 * Checks whether the block at the position of <code>data</code> is the
+	 * END block
+	 * 
+	 * @param data
+	 *            the block to analyze, not moved
+	 * @return whether or not this is an end block
+	 */
+	public static boolean isEndBlock(ByteBuffer data) {
+		if (data == null || !data.hasRemaining())
+			return false;
+		return (data.get(data.position()) & 0x04) == 0x04;
+	}
+
 	/**
 	 * Checks whether this block is an "empty" block, generally this is used by
 	 * the sender to ask for more data